@@ -0,0 +1,39 @@
+package cn.twinkle.middleware.dbs.router;
+
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 广播写、集合路由写入部分分片失败
+ * 多分片写入不是分布式事务，成功的分片已经提交，需要调用方根据失败分片重试或补偿
+ */
+public class DBBroadcastException extends RuntimeException {
+
+  /**
+   * 写入成功的分库
+   */
+  private final List<ShardRoute> succeeded;
+
+  /**
+   * 写入失败的分库及异常
+   */
+  private final Map<ShardRoute, Throwable> failures;
+
+  public DBBroadcastException(List<ShardRoute> succeeded, Map<ShardRoute, Throwable> failures) {
+    super("shard write failed on " + failures.keySet() + "，succeeded on " + succeeded,
+        failures.values().iterator().next());
+    this.succeeded = succeeded;
+    this.failures = failures;
+  }
+
+  public List<ShardRoute> getSucceeded() {
+    return succeeded;
+  }
+
+  public Map<ShardRoute, Throwable> getFailures() {
+    return failures;
+  }
+}
@@ -1,5 +1,8 @@
 package cn.twinkle.middleware.dbs.router;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * @Author: zhencym
  * @DATE: 2023/4/23
@@ -19,6 +22,14 @@ public class DBRouterConfig {
    * 路由字段
    */
   private String routerKey;
+  /**
+   * 广播表，每个分库都有一份完整数据，读取时使用当前路由的库，写入时同步到所有分库
+   */
+  private Set<String> broadcastTables = new HashSet<>();
+  /**
+   * 广播写入是否包含默认数据源（默认数据源不在分库列表中时需要同步写入）
+   */
+  private boolean broadcastDefault;
 
   public DBRouterConfig() {
   }
@@ -52,4 +63,20 @@ public class DBRouterConfig {
   public void setRouterKey(String routerKey) {
     this.routerKey = routerKey;
   }
+
+  public Set<String> getBroadcastTables() {
+    return broadcastTables;
+  }
+
+  public void setBroadcastTables(Set<String> broadcastTables) {
+    this.broadcastTables = broadcastTables;
+  }
+
+  public boolean isBroadcastDefault() {
+    return broadcastDefault;
+  }
+
+  public void setBroadcastDefault(boolean broadcastDefault) {
+    this.broadcastDefault = broadcastDefault;
+  }
 }
@@ -0,0 +1,243 @@
+package cn.twinkle.middleware.dbs.router;
+
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.lang.reflect.Array;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 多分片并行执行器
+ * 一次调用需要访问多个分片时（范围查询等），每个分片在独立线程中设置好 DBContextHolder 路由后执行，最后按分片顺序返回结果
+ * 注意不要在分片回调中再次调用并行执行，线程池被占满时会互相等待
+ */
+public class DBRouterExecutor {
+
+  private final ExecutorService executorService;
+
+  public DBRouterExecutor(int threads) {
+    AtomicInteger threadIdx = new AtomicInteger();
+    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "db-router-exec-" + threadIdx.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    threadPoolExecutor.allowCoreThreadTimeOut(true);
+    this.executorService = threadPoolExecutor;
+  }
+
+  /**
+   * 分片回调，执行时当前线程的 DBContextHolder 已经设置为该分片的路由
+   */
+  public interface ShardCallback<T> {
+    T doInShard(ShardRoute route) throws Throwable;
+  }
+
+  /**
+   * 在所有分片上执行回调，任意一个分片失败则取消其余分片并抛出该异常
+   * 只有一个分片时直接在当前线程执行
+   * @param routes 分片
+   * @param callback 回调
+   * @return 与 routes 顺序一致的结果
+   */
+  public <T> List<T> invokeAll(List<ShardRoute> routes, ShardCallback<T> callback) throws Throwable {
+    List<T> results = new ArrayList<>(routes.size());
+    if (routes.size() == 1) {
+      results.add(invokeInCurrentThread(routes.get(0), callback));
+      return results;
+    }
+
+    List<Future<T>> futures = new ArrayList<>(routes.size());
+    for (ShardRoute route : routes) {
+      futures.add(executorService.submit(() -> invoke(route, callback)));
+    }
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * 在所有分片上执行回调，等待全部分片执行完成
+   * 与 invokeAll 不同，某个分片失败不会取消其他分片，最后汇总抛出 DBBroadcastException
+   * @param routes 分片
+   * @param callback 回调
+   * @return 与 routes 顺序一致的结果
+   */
+  public <T> List<T> broadcast(List<ShardRoute> routes, ShardCallback<T> callback) {
+    List<Future<T>> futures = new ArrayList<>(routes.size());
+    for (ShardRoute route : routes) {
+      futures.add(executorService.submit(() -> invoke(route, callback)));
+    }
+
+    List<T> results = new ArrayList<>(routes.size());
+    List<ShardRoute> succeeded = new ArrayList<>();
+    Map<ShardRoute, Throwable> failures = new LinkedHashMap<>();
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+        succeeded.add(routes.get(i));
+      } catch (ExecutionException e) {
+        failures.put(routes.get(i), unwrap(e.getCause()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failures.put(routes.get(i), e);
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw new DBBroadcastException(succeeded, failures);
+    }
+    return results;
+  }
+
+  /**
+   * 当前线程执行，执行完恢复原有路由
+   */
+  private <T> T invokeInCurrentThread(ShardRoute route, ShardCallback<T> callback) throws Throwable {
+    String dbKey = DBContextHolder.getDBKey();
+    String tbKey = DBContextHolder.getTBKey();
+    DBContextHolder.setDBKey(route.getDbKey());
+    DBContextHolder.setTBKey(route.getTbKey());
+    try {
+      return callback.doInShard(route);
+    } finally {
+      if (null == dbKey) {
+        DBContextHolder.clearDBKey();
+      } else {
+        DBContextHolder.setDBKey(dbKey);
+      }
+      if (null == tbKey) {
+        DBContextHolder.clearTBKey();
+      } else {
+        DBContextHolder.setTBKey(tbKey);
+      }
+    }
+  }
+
+  private <T> T invoke(ShardRoute route, ShardCallback<T> callback) throws Exception {
+    DBContextHolder.setDBKey(route.getDbKey());
+    DBContextHolder.setTBKey(route.getTbKey());
+    try {
+      return callback.doInShard(route);
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    } finally {
+      DBContextHolder.clearDBKey();
+      DBContextHolder.clearTBKey();
+    }
+  }
+
+  private Throwable unwrap(Throwable e) {
+    if (e instanceof UndeclaredThrowableException && null != e.getCause()) {
+      return e.getCause();
+    }
+    return e;
+  }
+
+  /**
+   * 合并多个分片的结果
+   * 返回集合、数组时按分片顺序拼接（Set 去重），返回 Map 时合并（如 @MapKey 批量查询），返回数值时求和（如影响行数、count），
+   * 返回 boolean 时全部为 true 才为 true；其他类型只有一个分片时直接返回，多个分片无法合并时抛出异常，不静默丢弃数据
+   * @param results 各分片结果
+   * @param returnType 方法返回类型
+   * @return 合并结果
+   */
+  @SuppressWarnings("unchecked")
+  public static Object merge(List<?> results, Class<?> returnType) {
+    if (void.class == returnType || Void.class == returnType) {
+      return null;
+    }
+    if (Collection.class.isAssignableFrom(returnType)) {
+      Collection<Object> merged = Set.class.isAssignableFrom(returnType) ? new LinkedHashSet<>() : new ArrayList<>();
+      for (Object result : results) {
+        if (null != result) {
+          merged.addAll((Collection<Object>) result);
+        }
+      }
+      return merged;
+    }
+    if (Map.class.isAssignableFrom(returnType)) {
+      Map<Object, Object> merged = SortedMap.class.isAssignableFrom(returnType) ? new TreeMap<>() : new LinkedHashMap<>();
+      for (Object result : results) {
+        if (null != result) {
+          merged.putAll((Map<Object, Object>) result);
+        }
+      }
+      return merged;
+    }
+    if (returnType.isArray()) {
+      int length = 0;
+      for (Object result : results) {
+        length += null == result ? 0 : Array.getLength(result);
+      }
+      Object merged = Array.newInstance(returnType.getComponentType(), length);
+      int position = 0;
+      for (Object result : results) {
+        if (null != result) {
+          int resultLength = Array.getLength(result);
+          System.arraycopy(result, 0, merged, position, resultLength);
+          position += resultLength;
+        }
+      }
+      return merged;
+    }
+    if (int.class == returnType || Integer.class == returnType) {
+      int sum = 0;
+      for (Object result : results) {
+        sum += null == result ? 0 : ((Number) result).intValue();
+      }
+      return sum;
+    }
+    if (long.class == returnType || Long.class == returnType) {
+      long sum = 0;
+      for (Object result : results) {
+        sum += null == result ? 0 : ((Number) result).longValue();
+      }
+      return sum;
+    }
+    if (boolean.class == returnType || Boolean.class == returnType) {
+      boolean all = !results.isEmpty();
+      for (Object result : results) {
+        all &= Boolean.TRUE.equals(result);
+      }
+      return all;
+    }
+    if (results.size() > 1) {
+      throw new RuntimeException("can not merge results of " + results.size() + " shards, return type："
+          + returnType.getName());
+    }
+    return results.isEmpty() ? null : results.get(0);
+  }
+
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+}
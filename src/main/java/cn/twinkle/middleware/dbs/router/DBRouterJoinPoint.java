@@ -1,10 +1,29 @@
 package cn.twinkle.middleware.dbs.router;
 
 import cn.twinkle.middleware.dbs.router.annotation.DBRouter;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterRange;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRangeRouterStrategy;
 import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
@@ -14,6 +33,10 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * @Author: zhencym
@@ -21,7 +44,7 @@ import org.slf4j.LoggerFactory;
  * 数据路由切面，通过自定义注解的方式，拦截被切面的方法，进行数据库路由
  */
 @Aspect // 切面类
-public class DBRouterJoinPoint {
+public class DBRouterJoinPoint implements BeanFactoryAware {
 
   private Logger logger = LoggerFactory.getLogger(DBRouterJoinPoint.class);
 
@@ -29,9 +52,39 @@ public class DBRouterJoinPoint {
 
   private IDBRouterStrategy dbRouterStrategy;
 
+  private DBRouterExecutor dbRouterExecutor;
+
+  private BeanFactory beanFactory;
+
+  /**
+   * 注解中指定的路由策略，按类型缓存
+   */
+  private Map<Class<?>, IDBRouterStrategy> strategyCache = new ConcurrentHashMap<>();
+
+  /**
+   * 方法中路由字段对应的 @Param 参数位置：方法 -> 路由字段 -> 参数位置
+   */
+  private Map<Method, Map<String, Integer>> paramIndexCache = new ConcurrentHashMap<>();
+
+  /**
+   * 方法是否为查询语句：方法 -> 是否 select
+   */
+  private Map<Method, Boolean> selectCache = new ConcurrentHashMap<>();
+
   public DBRouterJoinPoint(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy) {
+    this(dbRouterConfig, dbRouterStrategy, new DBRouterExecutor(Runtime.getRuntime().availableProcessors()));
+  }
+
+  public DBRouterJoinPoint(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy,
+                           DBRouterExecutor dbRouterExecutor) {
     this.dbRouterConfig = dbRouterConfig;
     this.dbRouterStrategy = dbRouterStrategy;
+    this.dbRouterExecutor = dbRouterExecutor;
+  }
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+    this.beanFactory = beanFactory;
   }
 
   /**
@@ -41,6 +94,20 @@ public class DBRouterJoinPoint {
   public void aopPoint() {
   }
 
+  /**
+   * 范围路由切入点
+   */
+  @Pointcut("@annotation(cn.twinkle.middleware.dbs.router.annotation.DBRouterRange)")
+  public void aopRangePoint() {
+  }
+
+  /**
+   * 广播写切入点
+   */
+  @Pointcut("@annotation(cn.twinkle.middleware.dbs.router.annotation.DBBroadcast)")
+  public void aopBroadcastPoint() {
+  }
+
   /**
    * 所有需要分库分表的操作，都需要使用自定义注解进行拦截，拦截后读取方法中的入参字段，根据字段进行路由操作。
    * 1. dbRouter.key() 确定根据哪个字段进行路由
@@ -53,17 +120,33 @@ public class DBRouterJoinPoint {
   public Object doRouter(ProceedingJoinPoint jp, DBRouter dbRouter) throws Throwable {
     // 获取注解参数key
     String dbKey = dbRouter.key();
+    // 注解配置、默认配置中有一个路由参数不为空：注解配置优先级高
+    dbKey = StringUtils.isNotBlank(dbKey) ? dbKey : dbRouterConfig.getRouterKey();
+    // 分库、分表字段单独配置时优先使用，否则使用同一个路由字段
+    String dbAttr = StringUtils.isNotBlank(dbRouter.dbKey()) ? dbRouter.dbKey() : dbKey;
+    String tbAttr = StringUtils.isNotBlank(dbRouter.tbKey()) ? dbRouter.tbKey() : dbKey;
     // 当注解中没有传入路由参数，那就从配置中读取，如果配置也为空，那就返回错误
-    if (StringUtils.isEmpty(dbKey) && StringUtils.isEmpty(dbRouterConfig.getRouterKey())) {
+    if (StringUtils.isEmpty(dbAttr) || StringUtils.isEmpty(tbAttr)) {
       throw new RuntimeException("annotation DBRouter key is null！");
     }
-    // 注解配置、默认配置中有一个路由参数不为空：注解配置优先级高
-    dbKey = StringUtils.isNotBlank(dbKey) ? dbKey : dbRouterConfig.getRouterKey();
-    // 路由属性，从入参对象中获取键值，注意是从入参对象中获取到(实际上传来的是多个键对值)
-    String dbKeyAttr = getAttrValue(dbKey, jp.getArgs());
     // 路由策略
-    dbRouterStrategy.doRouter(dbKeyAttr);
-    logger.info("本次路由结果：库id：{} 表id：{}", dbRouterStrategy.getDBKey(), dbRouterStrategy.getTBKey());
+    IDBRouterStrategy strategy = getStrategy(dbRouter.strategy());
+    if (dbAttr.equals(tbAttr)) {
+      // 路由属性，优先取 @Param 同名参数，否则从入参对象中获取键值，注意是从入参对象中获取到(实际上传来的是多个键对值)
+      Object[] args = jp.getArgs();
+      int paramIdx = getParamIndex(jp, dbAttr);
+      Object dbKeyAttr = paramIdx >= 0 ? args[paramIdx] : getAttrObject(dbAttr, args);
+      // 路由字段是集合，按分片拆分后并行执行
+      if (dbKeyAttr instanceof Collection) {
+        return doSplitRouter(jp, strategy, dbAttr, paramIdx, (Collection<?>) dbKeyAttr);
+      }
+      strategy.doRouter(toAttrString(dbKeyAttr, strategy));
+    } else {
+      // 分库、分表字段不同，一次遍历入参同时取值，同样优先取 @Param 同名参数
+      String[] attrValues = requireAttrs(jp, dbAttr, tbAttr, strategy);
+      strategy.doRouter(attrValues[0], attrValues[1]);
+    }
+    logger.debug("本次路由结果：库id：{} 表id：{}", strategy.getDBKey(), strategy.getTBKey());
     // 返回结果
     try {
 
@@ -71,8 +154,298 @@ public class DBRouterJoinPoint {
 
       return jp.proceed();
     } finally {
-      dbRouterStrategy.clear();
+      strategy.clear();
+    }
+  }
+
+  /**
+   * 集合路由，如 selectByUserIds(List<String> userIds)、insertBatch(List<User> users)：
+   * 1. 用路由策略计算每个元素的分片，按 (库, 表) 分组；集合为空时不访问数据库
+   *    元素是字符串、数字等路由键时直接路由，元素是对象时按对象的路由字段路由，对象中没有路由字段时抛出异常
+   * 2. 每组用自己的子集合替换入参中的集合，各分片并行执行一次目标方法
+   * 3. 按返回类型合并结果；结果按分片顺序拼接，不保证与入参集合顺序一致
+   * 多个分片时各分片在执行器线程中使用独立连接自动提交，不受调用方事务控制，所以此时不允许在事务中调用；
+   * 只落在一个分片时在当前线程执行，可以在事务中使用。
+   * 查询任意分片失败即取消其余分片；写入不取消，等待全部分片完成后抛出 DBBroadcastException，包含已提交、失败的分片
+   */
+  private Object doSplitRouter(ProceedingJoinPoint jp, IDBRouterStrategy strategy, String attr, int paramIdx,
+                               Collection<?> keys) throws Throwable {
+    Map<ShardRoute, Collection<Object>> groups = new LinkedHashMap<>();
+    try {
+      for (Object key : keys) {
+        if (null == key) {
+          continue;
+        }
+        strategy.doRouter(toAttrString(elementAttr(key, attr), strategy));
+        groups.computeIfAbsent(new ShardRoute(strategy.getDBKey(), strategy.getTBKey()),
+            route -> keys instanceof Set ? new LinkedHashSet<Object>() : new ArrayList<Object>()).add(key);
+      }
+    } finally {
+      strategy.clear();
+    }
+    List<ShardRoute> routes = new ArrayList<>(groups.keySet());
+    logger.debug("本次集合路由结果：{}", routes);
+    if (routes.size() > 1 && TransactionSynchronizationManager.isActualTransactionActive()) {
+      throw new RuntimeException("DBRouter collection spans " + routes.size() + " shards, can not run in transaction："
+          + jp.getSignature().toShortString());
+    }
+
+    MethodSignature signature = (MethodSignature) jp.getSignature();
+    Object[] args = jp.getArgs();
+    DBRouterExecutor.ShardCallback<Object> callback =
+        route -> jp.proceed(replaceKeys(args, attr, paramIdx, keys, groups.get(route)));
+    List<Object> results = routes.size() > 1 && !isSelect(signature.getMethod())
+        ? dbRouterExecutor.broadcast(routes, callback) : dbRouterExecutor.invokeAll(routes, callback);
+    return DBRouterExecutor.merge(results, signature.getReturnType());
+  }
+
+  /**
+   * 方法对应的 MappedStatement 是否为查询语句；找不到语句（如注解在 service 方法上）时按写入处理
+   */
+  private boolean isSelect(Method method) {
+    Boolean select = selectCache.get(method);
+    if (null != select) {
+      return select;
+    }
+    return selectCache.computeIfAbsent(method, m -> {
+      SqlSessionFactory sqlSessionFactory = null == beanFactory ? null
+          : beanFactory.getBeanProvider(SqlSessionFactory.class).getIfAvailable();
+      if (null == sqlSessionFactory) {
+        return false;
+      }
+      Configuration configuration = sqlSessionFactory.getConfiguration();
+      String statementId = m.getDeclaringClass().getName() + "." + m.getName();
+      return configuration.hasStatement(statementId)
+          && SqlCommandType.SELECT == configuration.getMappedStatement(statementId).getSqlCommandType();
+    });
+  }
+
+  /**
+   * 集合元素的路由值：路由键本身，或者对象中的路由字段
+   */
+  private Object elementAttr(Object element, String attr) {
+    if (element instanceof CharSequence || element instanceof Number || element instanceof Character
+        || element instanceof Date || element instanceof Enum || element instanceof Temporal) {
+      return element;
     }
+    Object value;
+    try {
+      value = PropertyUtils.getProperty(element, attr);
+    } catch (Exception e) {
+      throw new RuntimeException("router attr not found in collection element attr：" + attr
+          + " element：" + element.getClass().getName(), e);
+    }
+    if (null == value || StringUtils.isBlank(value.toString())) {
+      throw new RuntimeException("router attr value is null in collection element attr：" + attr);
+    }
+    return value;
+  }
+
+  /**
+   * 复制入参，并把其中的路由集合替换为分片子集合
+   * 集合在对象属性中时，复制该对象后再设置属性，不修改调用方的入参
+   */
+  private Object[] replaceKeys(Object[] args, String attr, int paramIdx, Collection<?> keys,
+                               Collection<Object> subKeys) throws Exception {
+    Object[] newArgs = args.clone();
+    if (paramIdx >= 0) {
+      newArgs[paramIdx] = subKeys;
+      return newArgs;
+    }
+    for (int i = 0; i < args.length; i++) {
+      if (args[i] == keys) {
+        newArgs[i] = subKeys;
+        return newArgs;
+      }
+    }
+    for (int i = 0; i < args.length; i++) {
+      if (null != args[i] && !(args[i] instanceof String) && PropertyUtils.isReadable(args[i], attr)
+          && PropertyUtils.getProperty(args[i], attr) == keys) {
+        Object arg = BeanUtils.cloneBean(args[i]);
+        PropertyUtils.setProperty(arg, attr, subKeys);
+        newArgs[i] = arg;
+        return newArgs;
+      }
+    }
+    throw new RuntimeException("replace router keys failed attr：" + attr);
+  }
+
+  /**
+   * 获取 @Param 注解名称等于路由字段的参数位置，没有返回 -1
+   */
+  private int getParamIndex(ProceedingJoinPoint jp, String attr) {
+    Method method = ((MethodSignature) jp.getSignature()).getMethod();
+    Map<String, Integer> attrIndex = paramIndexCache.get(method);
+    if (null == attrIndex) {
+      attrIndex = paramIndexCache.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+    }
+    Integer paramIdx = attrIndex.get(attr);
+    if (null == paramIdx) {
+      paramIdx = attrIndex.computeIfAbsent(attr, a -> {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+          for (Annotation annotation : parameterAnnotations[i]) {
+            if (annotation instanceof Param && a.equals(((Param) annotation).value())) {
+              return i;
+            }
+          }
+        }
+        return -1;
+      });
+    }
+    return paramIdx;
+  }
+
+  /**
+   * 获取路由字段的值：优先取 @Param 同名参数，否则从入参对象中获取
+   */
+  private String resolveAttr(ProceedingJoinPoint jp, String attr, IDBRouterStrategy strategy) {
+    Object[] args = jp.getArgs();
+    int paramIdx = getParamIndex(jp, attr);
+    return toAttrString(paramIdx >= 0 ? args[paramIdx] : getAttrObject(attr, args), strategy);
+  }
+
+  /**
+   * 获取路由字段的值，为空时抛出异常
+   */
+  private String requireAttr(ProceedingJoinPoint jp, String attr, IDBRouterStrategy strategy) {
+    String value = resolveAttr(jp, attr, strategy);
+    if (StringUtils.isBlank(value)) {
+      throw new RuntimeException("router attr value is null：" + attr);
+    }
+    return value;
+  }
+
+  /**
+   * 复合路由一次取出分库、分表两个字段的值，为空时抛出异常
+   * 有 @Param 同名参数的字段直接取参数，其余字段在同一次遍历入参时从入参对象中获取
+   * @return [分库字段值, 分表字段值]
+   */
+  private String[] requireAttrs(ProceedingJoinPoint jp, String dbAttr, String tbAttr, IDBRouterStrategy strategy) {
+    Object[] args = jp.getArgs();
+    int dbParamIdx = getParamIndex(jp, dbAttr);
+    int tbParamIdx = getParamIndex(jp, tbAttr);
+    Object dbValue = dbParamIdx >= 0 ? args[dbParamIdx] : null;
+    Object tbValue = tbParamIdx >= 0 ? args[tbParamIdx] : null;
+    boolean dbFound = dbParamIdx >= 0;
+    boolean tbFound = tbParamIdx >= 0;
+    // 与 getAttrObject 一致：只有一个字符串入参时直接作为路由值
+    if (1 == args.length && args[0] instanceof String) {
+      dbValue = dbFound ? dbValue : args[0];
+      tbValue = tbFound ? tbValue : args[0];
+      dbFound = true;
+      tbFound = true;
+    }
+    for (Object arg : args) {
+      if (dbFound && tbFound) {
+        break;
+      }
+      if (null == arg) {
+        continue;
+      }
+      if (!dbFound) {
+        dbValue = getProperty(arg, dbAttr);
+        dbFound = null != dbValue && StringUtils.isNotBlank(dbValue.toString());
+      }
+      if (!tbFound) {
+        tbValue = getProperty(arg, tbAttr);
+        tbFound = null != tbValue && StringUtils.isNotBlank(tbValue.toString());
+      }
+    }
+    String dbKeyAttr = toAttrString(dbValue, strategy);
+    String tbKeyAttr = toAttrString(tbValue, strategy);
+    if (StringUtils.isBlank(dbKeyAttr)) {
+      throw new RuntimeException("router attr value is null：" + dbAttr);
+    }
+    if (StringUtils.isBlank(tbKeyAttr)) {
+      throw new RuntimeException("router attr value is null：" + tbAttr);
+    }
+    return new String[]{dbKeyAttr, tbKeyAttr};
+  }
+
+  /**
+   * 读取入参对象的属性，对象中没有该属性时返回 null
+   */
+  private Object getProperty(Object arg, String attr) {
+    if (!(arg instanceof Map) && !PropertyUtils.isReadable(arg, attr)) {
+      return null;
+    }
+    try {
+      return PropertyUtils.getProperty(arg, attr);
+    } catch (Exception e) {
+      logger.error("获取路由属性值失败 attr：{}", attr, e);
+      return null;
+    }
+  }
+
+  /**
+   * 范围路由：
+   * 1. 从入参中读取区间开始、结束字段；配置了 dbKey 时同时读取分库字段，分库与 @DBRouter 复合路由一致
+   * 2. 范围路由策略计算出与区间有交集的所有分片
+   * 3. 每个分片并行执行一次目标方法，最后按返回类型合并结果
+   */
+  @Around("aopRangePoint() && @annotation(dbRouterRange)")
+  public Object doRangeRouter(ProceedingJoinPoint jp, DBRouterRange dbRouterRange) throws Throwable {
+    IDBRangeRouterStrategy strategy = (IDBRangeRouterStrategy) getStrategy(dbRouterRange.strategy());
+    String startAttr = resolveAttr(jp, dbRouterRange.start(), strategy);
+    String endAttr = resolveAttr(jp, dbRouterRange.end(), strategy);
+    List<ShardRoute> routes = StringUtils.isBlank(dbRouterRange.dbKey()) ? strategy.doRangeRouter(startAttr, endAttr)
+        : strategy.doRangeRouter(requireAttr(jp, dbRouterRange.dbKey(), strategy), startAttr, endAttr);
+    logger.debug("本次范围路由结果：{}", routes);
+
+    List<Object> results = dbRouterExecutor.invokeAll(routes, route -> jp.proceed());
+    return DBRouterExecutor.merge(results, ((MethodSignature) jp.getSignature()).getReturnType());
+  }
+
+  /**
+   * 广播写：在所有分库（以及不在分库列表中的默认数据源）上并行执行一次目标方法，返回影响行数之和
+   * 部分分库失败时抛出 DBBroadcastException，包含成功、失败的分库
+   * 各分库在执行器线程中独立提交，不受调用方事务控制，所以不允许在事务中调用
+   */
+  @Around("aopBroadcastPoint()")
+  public Object doBroadcast(ProceedingJoinPoint jp) throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      throw new RuntimeException("DBBroadcast can not run in transaction：" + jp.getSignature().toShortString());
+    }
+    List<ShardRoute> routes = new ArrayList<>();
+    for (int dbIdx = 1; dbIdx <= dbRouterConfig.getDbCount(); dbIdx++) {
+      routes.add(new ShardRoute(String.format("%02d", dbIdx), null));
+    }
+    if (dbRouterConfig.isBroadcastDefault()) {
+      routes.add(new ShardRoute(null, null));
+    }
+
+    List<Object> results = dbRouterExecutor.broadcast(routes, route -> jp.proceed());
+    return DBRouterExecutor.merge(results, ((MethodSignature) jp.getSignature()).getReturnType());
+  }
+
+  /**
+   * 获取注解中指定的路由策略
+   * 默认返回容器中的路由策略；指定了其他策略时，优先从容器中获取，没有则通过 DBRouterConfig 构造函数创建
+   * @param strategyClass 策略类型
+   * @return 路由策略
+   */
+  public IDBRouterStrategy getStrategy(Class<? extends IDBRouterStrategy> strategyClass) {
+    if (strategyClass.isInstance(dbRouterStrategy)) {
+      return dbRouterStrategy;
+    }
+    IDBRouterStrategy strategy = strategyCache.get(strategyClass);
+    if (null != strategy) {
+      return strategy;
+    }
+    return strategyCache.computeIfAbsent(strategyClass, clazz -> {
+      if (null != beanFactory) {
+        IDBRouterStrategy bean = (IDBRouterStrategy) beanFactory.getBeanProvider(clazz).getIfAvailable();
+        if (null != bean) {
+          return bean;
+        }
+      }
+      try {
+        return (IDBRouterStrategy) clazz.getConstructor(DBRouterConfig.class).newInstance(dbRouterConfig);
+      } catch (ReflectiveOperationException e) {
+        throw new RuntimeException("create router strategy failed：" + clazz.getName(), e);
+      }
+    });
   }
 
   /**
@@ -95,23 +468,33 @@ public class DBRouterJoinPoint {
    * @return
    */
   public String getAttrValue(String attr, Object[] args) {
-    // 长度为1，切入方法传参对象只有一个属性，那就直接返回
+    return toAttrString(getAttrObject(attr, args), dbRouterStrategy);
+  }
+
+  /**
+   * 获取键值对应的属性，不做类型转换
+   * @param attr
+   * @param args
+   * @return
+   */
+  public Object getAttrObject(String attr, Object[] args) {
+    // 长度为1，切入方法传参对象只有一个属性（字符串或集合），那就直接返回
     if (1 == args.length) {
       Object arg = args[0];
-      if (arg instanceof String) {
-        return arg.toString();
+      if (arg instanceof String || arg instanceof Collection) {
+        return arg;
       }
     }
 
     // 切入方法有多个 键对值参数，遍历查找返回；（需要遍历找出key为arr的那一个value）
-    String filedValue = null;
+    Object filedValue = null;
     for (Object arg : args) {
       try {
-        if (StringUtils.isNotBlank(filedValue)) {
+        if (null != filedValue && StringUtils.isNotBlank(filedValue.toString())) {
           break;
         }
         // 根据key找value
-        filedValue = BeanUtils.getProperty(arg, attr);
+        filedValue = PropertyUtils.getProperty(arg, attr);
       } catch (Exception e) {
         logger.error("获取路由属性值失败 attr：{}", attr, e);
       }
@@ -119,4 +502,19 @@ public class DBRouterJoinPoint {
     return filedValue;
   }
 
+  /**
+   * 路由属性值转为字符串
+   * 范围（时间）路由策略需要解析年月，Date 转为毫秒时间戳；
+   * 其他策略保持 toString，与原来 BeanUtils.getProperty 的结果一致，已有数据的路由结果不变
+   */
+  private String toAttrString(Object value, IDBRouterStrategy strategy) {
+    if (null == value) {
+      return null;
+    }
+    if (value instanceof Date && strategy instanceof IDBRangeRouterStrategy) {
+      return String.valueOf(((Date) value).getTime());
+    }
+    return value.toString();
+  }
+
 }
@@ -0,0 +1,74 @@
+package cn.twinkle.middleware.dbs.router.analyzer;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 路由分布分析结果
+ * 包含当前拓扑的分布；指定了目标拓扑时，还包含目标拓扑的分布以及迁移的键数量
+ */
+public class DistributionReport {
+
+  private final long totalKeys;
+
+  private final ShardDistribution source;
+
+  /**
+   * 目标拓扑分布，未指定目标拓扑时为 null
+   */
+  private final ShardDistribution target;
+
+  /**
+   * 库或表发生变化的键数量
+   */
+  private final long movedKeys;
+
+  /**
+   * 库发生变化的键数量，这部分数据需要跨实例迁移
+   */
+  private final long crossDbMovedKeys;
+
+  public DistributionReport(long totalKeys, ShardDistribution source, ShardDistribution target,
+                            long movedKeys, long crossDbMovedKeys) {
+    this.totalKeys = totalKeys;
+    this.source = source;
+    this.target = target;
+    this.movedKeys = movedKeys;
+    this.crossDbMovedKeys = crossDbMovedKeys;
+  }
+
+  public long getTotalKeys() {
+    return totalKeys;
+  }
+
+  public ShardDistribution getSource() {
+    return source;
+  }
+
+  public ShardDistribution getTarget() {
+    return target;
+  }
+
+  public long getMovedKeys() {
+    return movedKeys;
+  }
+
+  public long getCrossDbMovedKeys() {
+    return crossDbMovedKeys;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("========== 当前拓扑 ==========").append(System.lineSeparator()).append(source);
+    if (null != target) {
+      builder.append("========== 目标拓扑 ==========").append(System.lineSeparator()).append(target);
+      builder.append(String.format("迁移键数：%d (%.2f%%) 跨库迁移键数：%d (%.2f%%)%n",
+          movedKeys, percent(movedKeys), crossDbMovedKeys, percent(crossDbMovedKeys)));
+    }
+    return builder.toString();
+  }
+
+  private double percent(long keys) {
+    return totalKeys == 0 ? 0 : keys * 100.0 / totalKeys;
+  }
+}
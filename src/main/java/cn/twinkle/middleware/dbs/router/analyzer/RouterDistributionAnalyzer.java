@@ -0,0 +1,323 @@
+package cn.twinkle.middleware.dbs.router.analyzer;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 路由分布分析器，用于容量规划、扩容评估
+ * 读取一行一个路由键的样本文件，用 IDBRouterStrategy 计算每个键的路由结果，
+ * 统计各 (库, 表) 的键数量、倾斜度；指定目标拓扑时，同时统计扩容后需要迁移的键数量
+ * 只支持分片固定的策略：库路由为 01~dbCount，表路由为 000~tbCount-1（即 allRoutes 的编号方式，如 DBRouterStrategyHashCode）；
+ * 按月分表等分表数不固定的策略在创建时直接拒绝
+ *
+ * 文件按线程数切分成多段并行处理，每段通过内存映射按窗口读取，不会把整个文件读入堆内存
+ * 路由结果保存在 DBContextHolder 的 ThreadLocal 中，所以每个线程都可以安全地共用同一个策略对象
+ *
+ * 命令行用法：
+ * java ... RouterDistributionAnalyzer 样本文件 dbCount tbCount [目标dbCount 目标tbCount] [--threads=N] [--strategy=全类名]
+ */
+public class RouterDistributionAnalyzer {
+
+  /**
+   * 每次内存映射的窗口大小
+   */
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final IDBRouterStrategy source;
+
+  private final IDBRouterStrategy target;
+
+  private final int threads;
+
+  /**
+   * @param source 当前路由策略
+   * @param target 目标路由策略，不评估扩容时传 null
+   * @param threads 并行线程数
+   */
+  public RouterDistributionAnalyzer(IDBRouterStrategy source, IDBRouterStrategy target, int threads) {
+    checkStrategy(source);
+    if (null != target) {
+      checkStrategy(target);
+    }
+    this.source = source;
+    this.target = target;
+    this.threads = Math.max(1, threads);
+  }
+
+  public RouterDistributionAnalyzer(IDBRouterStrategy source) {
+    this(source, null, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * 分片数量不固定的策略（allRoutes 不支持）无法按 库 × 表 统计
+   */
+  private void checkStrategy(IDBRouterStrategy strategy) {
+    try {
+      strategy.allRoutes();
+    } catch (UnsupportedOperationException e) {
+      throw new RuntimeException("analyzer not support router strategy：" + strategy.getClass().getName(), e);
+    }
+  }
+
+  /**
+   * 分析样本文件
+   * @param keyFile 一行一个路由键，空行忽略
+   * @return 分析结果
+   */
+  public DistributionReport analyze(Path keyFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(keyFile, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      long segmentSize = Math.max(1, (fileSize + threads - 1) / threads);
+      ExecutorService executorService = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Segment>> futures = new ArrayList<>();
+        for (long start = 0; start < fileSize; start += segmentSize) {
+          long segmentStart = start;
+          long segmentEnd = Math.min(fileSize, start + segmentSize);
+          futures.add(executorService.submit(() -> analyzeSegment(channel, fileSize, segmentStart, segmentEnd)));
+        }
+        // 合并各段统计结果
+        Segment result = new Segment();
+        result.sourceCounts(source);
+        if (null != target) {
+          result.targetCounts(target);
+        }
+        for (Future<Segment> future : futures) {
+          result.merge(future.get());
+        }
+        return new DistributionReport(result.total, new ShardDistribution(result.sourceCounts),
+            null == target ? null : new ShardDistribution(result.targetCounts), result.moved, result.crossDbMoved);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("路由分布分析被中断", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new RuntimeException("路由分布分析失败", e.getCause());
+      } finally {
+        executorService.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * 处理文件的一段，该段负责所有 起始位置在 [start, end) 之间的行
+   */
+  private Segment analyzeSegment(FileChannel channel, long fileSize, long start, long end) throws IOException {
+    Segment segment = new Segment();
+    byte[] line = new byte[256];
+    long position = start;
+    // 不是从行首开始的段，跳过第一行的剩余部分，这一行由上一段处理
+    if (start > 0) {
+      position = nextLineStart(channel, fileSize, start - 1);
+    }
+
+    while (position < end) {
+      int windowSize = (int) Math.min(WINDOW_SIZE, fileSize - position);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+      boolean lastWindow = position + windowSize == fileSize;
+      int lineStart = 0;
+      for (int i = 0; i < windowSize && position + lineStart < end; i++) {
+        if (buffer.get(i) == '\n') {
+          line = route(segment, buffer, lineStart, i, line);
+          lineStart = i + 1;
+        }
+      }
+      if (lastWindow && lineStart < windowSize && position + lineStart < end) {
+        // 文件最后一行没有换行符
+        line = route(segment, buffer, lineStart, windowSize, line);
+        lineStart = windowSize;
+      }
+      if (lineStart == 0) {
+        throw new IOException("样本文件单行长度超过 " + WINDOW_SIZE + " 字节，位置：" + position);
+      }
+      position += lineStart;
+    }
+    return segment;
+  }
+
+  /**
+   * 从 from 开始查找下一个换行符，返回下一行的起始位置
+   */
+  private long nextLineStart(FileChannel channel, long fileSize, long from) throws IOException {
+    long position = from;
+    while (position < fileSize) {
+      int windowSize = (int) Math.min(WINDOW_SIZE, fileSize - position);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+      for (int i = 0; i < windowSize; i++) {
+        if (buffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += windowSize;
+    }
+    return fileSize;
+  }
+
+  /**
+   * 对 [from, to) 这一行进行路由并计数
+   */
+  private byte[] route(Segment segment, MappedByteBuffer buffer, int from, int to, byte[] line) {
+    int length = to - from;
+    if (length > 0 && buffer.get(to - 1) == '\r') {
+      length--;
+    }
+    if (length > line.length) {
+      line = new byte[length * 2];
+    }
+    for (int i = 0; i < length; i++) {
+      line[i] = buffer.get(from + i);
+    }
+    String key = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+    if (key.isEmpty()) {
+      return line;
+    }
+
+    source.doRouter(key);
+    String sourceDbKey = source.getDBKey();
+    String sourceTbKey = source.getTBKey();
+    source.clear();
+    count(segment.sourceCounts(source), source, sourceDbKey, sourceTbKey);
+    segment.total++;
+
+    if (null != target) {
+      target.doRouter(key);
+      String targetDbKey = target.getDBKey();
+      String targetTbKey = target.getTBKey();
+      target.clear();
+      count(segment.targetCounts(target), target, targetDbKey, targetTbKey);
+      if (!sourceDbKey.equals(targetDbKey)) {
+        segment.crossDbMoved++;
+        segment.moved++;
+      } else if (!sourceTbKey.equals(targetTbKey)) {
+        segment.moved++;
+      }
+    }
+    return line;
+  }
+
+  /**
+   * 按 库序号 - 1、表序号 计数，路由结果超出 dbCount × tbCount 时抛出异常，不静默统计错误
+   */
+  private void count(long[][] counts, IDBRouterStrategy strategy, String dbKey, String tbKey) {
+    int dbIdx;
+    int tbIdx;
+    try {
+      dbIdx = Integer.parseInt(dbKey) - 1;
+      tbIdx = Integer.parseInt(tbKey);
+    } catch (NumberFormatException e) {
+      throw new RuntimeException("analyzer route illegal：" + dbKey + "/" + tbKey, e);
+    }
+    if (dbIdx < 0 || dbIdx >= counts.length || tbIdx < 0 || tbIdx >= counts[dbIdx].length) {
+      throw new RuntimeException("analyzer route out of " + strategy.dbCount() + "×" + strategy.tbCount() + "："
+          + dbKey + "/" + tbKey);
+    }
+    counts[dbIdx][tbIdx]++;
+  }
+
+  /**
+   * 单个线程的统计结果
+   */
+  private static class Segment {
+    private long[][] sourceCounts;
+    private long[][] targetCounts;
+    private long total;
+    private long moved;
+    private long crossDbMoved;
+
+    private long[][] sourceCounts(IDBRouterStrategy strategy) {
+      if (null == sourceCounts) {
+        sourceCounts = new long[strategy.dbCount()][strategy.tbCount()];
+      }
+      return sourceCounts;
+    }
+
+    private long[][] targetCounts(IDBRouterStrategy strategy) {
+      if (null == targetCounts) {
+        targetCounts = new long[strategy.dbCount()][strategy.tbCount()];
+      }
+      return targetCounts;
+    }
+
+    private void merge(Segment other) {
+      sourceCounts = add(sourceCounts, other.sourceCounts);
+      targetCounts = add(targetCounts, other.targetCounts);
+      total += other.total;
+      moved += other.moved;
+      crossDbMoved += other.crossDbMoved;
+    }
+
+    private static long[][] add(long[][] to, long[][] from) {
+      if (null == from) {
+        return to;
+      }
+      if (null == to) {
+        return from;
+      }
+      for (int i = 0; i < to.length; i++) {
+        for (int j = 0; j < to[i].length; j++) {
+          to[i][j] += from[i][j];
+        }
+      }
+      return to;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> positional = new ArrayList<>();
+    int threads = Runtime.getRuntime().availableProcessors();
+    String strategyClass = DBRouterStrategyHashCode.class.getName();
+    for (String arg : args) {
+      if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(arg.substring("--threads=".length()));
+      } else if (arg.startsWith("--strategy=")) {
+        strategyClass = arg.substring("--strategy=".length());
+      } else {
+        positional.add(arg);
+      }
+    }
+    if (positional.size() != 3 && positional.size() != 5) {
+      System.err.println("用法：RouterDistributionAnalyzer 样本文件 dbCount tbCount [目标dbCount 目标tbCount] "
+          + "[--threads=N] [--strategy=全类名]");
+      System.exit(1);
+    }
+
+    IDBRouterStrategy source = newStrategy(strategyClass,
+        Integer.parseInt(positional.get(1)), Integer.parseInt(positional.get(2)));
+    IDBRouterStrategy target = positional.size() == 5 ? newStrategy(strategyClass,
+        Integer.parseInt(positional.get(3)), Integer.parseInt(positional.get(4))) : null;
+
+    long begin = System.currentTimeMillis();
+    DistributionReport report = new RouterDistributionAnalyzer(source, target, threads)
+        .analyze(Paths.get(positional.get(0)));
+    System.out.print(report);
+    System.out.printf("耗时：%dms%n", System.currentTimeMillis() - begin);
+  }
+
+  /**
+   * 通过 DBRouterConfig 构造函数实例化路由策略
+   */
+  private static IDBRouterStrategy newStrategy(String strategyClass, int dbCount, int tbCount) throws Exception {
+    return (IDBRouterStrategy) Class.forName(strategyClass)
+        .getConstructor(DBRouterConfig.class)
+        .newInstance(new DBRouterConfig(dbCount, tbCount, null));
+  }
+
+}
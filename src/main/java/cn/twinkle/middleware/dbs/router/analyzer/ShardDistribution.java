@@ -0,0 +1,118 @@
+package cn.twinkle.middleware.dbs.router.analyzer;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 某一种分库分表拓扑下，各 (库, 表) 的键数量及倾斜度
+ * counts[库序号 - 1][表序号]，与路由结果 01/000 的编号方式一致
+ */
+public class ShardDistribution {
+
+  private final long[][] counts;
+
+  public ShardDistribution(long[][] counts) {
+    this.counts = counts;
+  }
+
+  public long[][] getCounts() {
+    return counts;
+  }
+
+  public int dbCount() {
+    return counts.length;
+  }
+
+  public int tbCount() {
+    return counts.length == 0 ? 0 : counts[0].length;
+  }
+
+  public long count(int dbIdx, int tbIdx) {
+    return counts[dbIdx - 1][tbIdx];
+  }
+
+  /**
+   * 某个库的键数量
+   */
+  public long dbTotal(int dbIdx) {
+    long total = 0;
+    for (long count : counts[dbIdx - 1]) {
+      total += count;
+    }
+    return total;
+  }
+
+  public long total() {
+    long total = 0;
+    for (int dbIdx = 1; dbIdx <= dbCount(); dbIdx++) {
+      total += dbTotal(dbIdx);
+    }
+    return total;
+  }
+
+  /**
+   * 每张表的平均键数量
+   */
+  public double mean() {
+    int shards = dbCount() * tbCount();
+    return shards == 0 ? 0 : (double) total() / shards;
+  }
+
+  public long max() {
+    long max = 0;
+    for (long[] db : counts) {
+      for (long count : db) {
+        max = Math.max(max, count);
+      }
+    }
+    return max;
+  }
+
+  public long min() {
+    long min = Long.MAX_VALUE;
+    for (long[] db : counts) {
+      for (long count : db) {
+        min = Math.min(min, count);
+      }
+    }
+    return min == Long.MAX_VALUE ? 0 : min;
+  }
+
+  /**
+   * 变异系数 = 标准差 / 均值，越接近 0 分布越均匀
+   */
+  public double coefficientOfVariation() {
+    double mean = mean();
+    if (mean == 0) {
+      return 0;
+    }
+    double variance = 0;
+    for (long[] db : counts) {
+      for (long count : db) {
+        variance += (count - mean) * (count - mean);
+      }
+    }
+    return Math.sqrt(variance / (dbCount() * tbCount())) / mean;
+  }
+
+  /**
+   * 最大表 / 平均值，即最热的表比平均多承担多少倍
+   */
+  public double maxMeanRatio() {
+    double mean = mean();
+    return mean == 0 ? 0 : max() / mean;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("分库：%d 分表：%d 总数：%d 均值：%.1f 最小：%d 最大：%d 变异系数：%.4f 最大/均值：%.4f%n",
+        dbCount(), tbCount(), total(), mean(), min(), max(), coefficientOfVariation(), maxMeanRatio()));
+    for (int dbIdx = 1; dbIdx <= dbCount(); dbIdx++) {
+      builder.append(String.format("  db%02d 合计：%d%n", dbIdx, dbTotal(dbIdx)));
+      for (int tbIdx = 0; tbIdx < tbCount(); tbIdx++) {
+        builder.append(String.format("    _%03d：%d%n", tbIdx, count(dbIdx, tbIdx)));
+      }
+    }
+    return builder.toString();
+  }
+}
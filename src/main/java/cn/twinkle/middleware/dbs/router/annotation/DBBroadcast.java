@@ -0,0 +1,22 @@
+package cn.twinkle.middleware.dbs.router.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 广播写注解
+ * 标注在广播表（字典、配置、地区编码等小表）的写方法上，方法会在所有分库上并行执行一次，返回影响行数之和
+ * 任意分库失败时抛出 DBBroadcastException，其中包含成功、失败的分库，由调用方决定重试或补偿
+ * 各分库独立提交，不能在事务中调用，否则直接抛出异常
+ * 广播表本身通过 mini-db-router.jdbc.datasource.broadcastTables 声明，分表 sql 中的广播表不会加后缀
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface DBBroadcast {
+}
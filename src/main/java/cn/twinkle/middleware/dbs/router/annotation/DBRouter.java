@@ -1,5 +1,6 @@
 package cn.twinkle.middleware.dbs.router.annotation;
 
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -27,4 +28,21 @@ public @interface DBRouter {
    */
   String key() default "";
 
+  /**
+   * 分库字段，不配置时使用 key
+   * 与 tbKey 一起使用可以让库、表按不同字段路由，如按 tenantId 分库、按 userId 分表
+   */
+  String dbKey() default "";
+
+  /**
+   * 分表字段，不配置时使用 key
+   */
+  String tbKey() default "";
+
+  /**
+   * 路由策略，默认使用容器中的 IDBRouterStrategy
+   * 指定其他策略时，优先从容器中获取，没有则通过 DBRouterConfig 构造函数创建
+   */
+  Class<? extends IDBRouterStrategy> strategy() default IDBRouterStrategy.class;
+
 }
@@ -0,0 +1,45 @@
+package cn.twinkle.middleware.dbs.router.annotation;
+
+import cn.twinkle.middleware.dbs.router.strategy.IDBRangeRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 范围路由注解
+ * 从入参中读取区间开始、结束字段，只访问与区间有交集的分表，各分表并行执行后按 DBRouterExecutor.merge 合并结果：
+ * 返回集合、数组时拼接（Set 去重），返回 Map 时合并，返回 int、long 时求和，返回 boolean 时全部为 true 才为 true；
+ * 其他类型只访问一个分表时直接返回，访问多个分表时抛出异常
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface DBRouterRange {
+
+  /**
+   * 区间开始字段
+   */
+  String start();
+
+  /**
+   * 区间结束字段
+   */
+  String end();
+
+  /**
+   * 分库字段，不配置时库由时间决定
+   * 配置后分库与 @DBRouter(dbKey = .., tbKey = ..) 复合路由一致，如按 tenantId 分库、按时间分表时只查询该租户所在的库
+   */
+  String dbKey() default "";
+
+  /**
+   * 范围路由策略，默认按月分表
+   */
+  Class<? extends IDBRangeRouterStrategy> strategy() default DBRouterStrategyTimeRange.class;
+
+}
@@ -1,17 +1,37 @@
 package cn.twinkle.middleware.dbs.router.config;
 
 import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.DBRouterExecutor;
 import cn.twinkle.middleware.dbs.router.DBRouterJoinPoint;
 import cn.twinkle.middleware.dbs.router.dynamic.DynamicDataSource;
 import cn.twinkle.middleware.dbs.router.dynamic.DynamicMybatisPlugin;
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementCacheMonitor;
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementWarmer;
+import cn.twinkle.middleware.dbs.router.scan.ShardScanner;
 import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
 import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import cn.twinkle.middleware.dbs.router.support.TimeShardTableCreator;
 import cn.twinkle.middleware.dbs.router.util.PropertyUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import javax.sql.DataSource;
+import org.apache.commons.lang.StringUtils;
 import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +51,8 @@ import org.springframework.transaction.support.TransactionTemplate;
 @Configuration
 public class DataSourceAutoConfig implements EnvironmentAware {
 
+  private Logger logger = LoggerFactory.getLogger(DataSourceAutoConfig.class);
+
   /**
    * 数据源配置组
    */
@@ -56,16 +78,99 @@ public class DataSourceAutoConfig implements EnvironmentAware {
    */
   private String routerKey;
 
+  /**
+   * 多分片并行执行线程数
+   */
+  private int executorThreads;
+
+  /**
+   * 按月分表需要预建的逻辑表
+   */
+  private List<String> timeTables = new ArrayList<>();
+
+  /**
+   * 按月分表预建的月份数
+   */
+  private int timeTablesAhead;
+
+  /**
+   * 按月分表是否在所有分库预建，复合路由（按其他字段分库、按时间分表）时开启
+   */
+  private boolean timeTablesAllDb;
+
+  /**
+   * 广播表
+   */
+  private Set<String> broadcastTables = new HashSet<>();
+
+  /**
+   * 默认数据源不在分库列表中时，广播写需要同时写入默认数据源
+   */
+  private boolean broadcastDefault;
+
+  /**
+   * 是否开启分库连接池 + 预编译语句缓存
+   */
+  private boolean stmtCacheEnabled;
+
+  /**
+   * 每个连接缓存的逻辑语句数，驱动缓存大小 = 逻辑语句数 * 分表数
+   */
+  private int stmtCacheSize;
+
+  /**
+   * 超过该长度的 sql 不缓存
+   */
+  private int stmtCacheSqlLimit;
+
+  /**
+   * 每个分库连接池最多占用的服务端预编译语句数，默认为 MySQL max_prepared_stmt_count 的默认值 16382
+   * 该上限是 MySQL 实例全局的，同一实例上有多个分库、多个应用实例时，需要按份数分摊后配置
+   */
+  private int stmtCacheMaxServerStmts;
+
+  /**
+   * 每个连接实际的驱动缓存大小：min(逻辑语句数 * 分表数, stmtCacheMaxServerStmts / 连接池最大连接数)
+   */
+  private int prepStmtCacheSize;
+
+  /**
+   * 需要预热的热点语句 id，按热度排序
+   */
+  private List<String> stmtCacheHotStatements = new ArrayList<>();
+
+  /**
+   * 每个分库连接池最大连接数
+   */
+  private int poolMaxSize;
+
+  /**
+   * 每个分库连接池最小空闲连接数，同时也是预热的连接数
+   */
+  private int poolMinIdle;
+
   /**
    * 切面类，实现AOP目标方法增强
    * @param dbRouterConfig
    * @param dbRouterStrategy
+   * @param dbRouterExecutor
    * @return
    */
   @Bean(name = "db-router-point")
   @ConditionalOnMissingBean //不存在时注入
-  public DBRouterJoinPoint point(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy) {
-    return new DBRouterJoinPoint(dbRouterConfig, dbRouterStrategy);
+  public DBRouterJoinPoint point(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy,
+                                 DBRouterExecutor dbRouterExecutor) {
+    return new DBRouterJoinPoint(dbRouterConfig, dbRouterStrategy, dbRouterExecutor);
+  }
+
+  /**
+   * 多分片并行执行器，用于范围路由等一次调用访问多个分片的场景
+   * @return
+   */
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnMissingBean
+  public DBRouterExecutor dbRouterExecutor() {
+    return new DBRouterExecutor(executorThreads);
   }
 
   /**
@@ -76,17 +181,50 @@ public class DataSourceAutoConfig implements EnvironmentAware {
    */
   @Bean
   public DBRouterConfig dbRouterConfig() {
-    return new DBRouterConfig(dbCount, tbCount, routerKey);
+    DBRouterConfig dbRouterConfig = new DBRouterConfig(dbCount, tbCount, routerKey);
+    dbRouterConfig.setBroadcastTables(broadcastTables);
+    dbRouterConfig.setBroadcastDefault(broadcastDefault);
+    return dbRouterConfig;
   }
 
   /**
    * 得到 Mybatis拦截器对象DynamicMybatisPlugin，
    * 用于拦截dao方法、更新表名，实现分表路由
+   * @param dbRouterConfig
+   * @return
+   */
+  @Bean
+  public Interceptor plugin(DBRouterConfig dbRouterConfig,
+                            ObjectProvider<ShardStatementCacheMonitor> statementCacheMonitor) {
+    return new DynamicMybatisPlugin(dbRouterConfig, statementCacheMonitor.getIfAvailable());
+  }
+
+  /**
+   * 分库预编译缓存命中率统计，开启 stmtCache 时生效
+   * @return
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "mini-db-router.jdbc.datasource.stmtCache", name = "enabled", havingValue = "true")
+  public ShardStatementCacheMonitor shardStatementCacheMonitor() {
+    return new ShardStatementCacheMonitor(prepStmtCacheSize, stmtCacheSqlLimit);
+  }
+
+  /**
+   * 分库预编译语句预热，开启 stmtCache 时生效
+   * 数据源创建连接池时需要用它包装物理连接，这里延迟获取数据源，避免循环依赖
+   * @param dataSource
+   * @param dbRouterConfig
+   * @param statementCacheMonitor
+   * @param sqlSessionFactory
    * @return
    */
   @Bean
-  public Interceptor plugin() {
-    return new DynamicMybatisPlugin();
+  @ConditionalOnProperty(prefix = "mini-db-router.jdbc.datasource.stmtCache", name = "enabled", havingValue = "true")
+  public ShardStatementWarmer shardStatementWarmer(ObjectProvider<DataSource> dataSource, DBRouterConfig dbRouterConfig,
+                                                   ShardStatementCacheMonitor statementCacheMonitor,
+                                                   ObjectProvider<SqlSessionFactory> sqlSessionFactory) {
+    return new ShardStatementWarmer(dataSource, dbRouterConfig, statementCacheMonitor, sqlSessionFactory,
+        stmtCacheHotStatements, prepStmtCacheSize / tbCount, poolMinIdle, poolMaxSize);
   }
 
   /**
@@ -95,15 +233,15 @@ public class DataSourceAutoConfig implements EnvironmentAware {
    * @return
    */
   @Bean
-  public DataSource dataSource() {
+  public DataSource dataSource(ObjectProvider<ShardStatementWarmer> statementWarmerProvider) {
+    ShardStatementWarmer statementWarmer = statementWarmerProvider.getIfAvailable();
     // 创建数据源
     Map<Object, Object> targetDataSources = new HashMap<>();
     // 根据所有其他数据源的名字、配置信息，建立每一个数据源的连接信息，并保存到targetDataSources
     for (String dbInfo : dataSourceMap.keySet()) {
       Map<String, Object> objMap = dataSourceMap.get(dbInfo);
       // 每一个分库，对应一个连接，比如db01--连接
-      targetDataSources.put(dbInfo, new DriverManagerDataSource(objMap.get("url").toString(),
-          objMap.get("username").toString(), objMap.get("password").toString()));
+      targetDataSources.put(dbInfo, createDataSource(dbInfo, objMap, statementWarmer));
     }
 
     // 设置数据源
@@ -111,24 +249,91 @@ public class DataSourceAutoConfig implements EnvironmentAware {
     DynamicDataSource dynamicDataSource = new DynamicDataSource();
     dynamicDataSource.setTargetDataSources(targetDataSources);
     // 同时设置当前数据源为默认数据源
-    dynamicDataSource.setDefaultTargetDataSource(new DriverManagerDataSource(defaultDataSourceConfig.get("url").toString(),
-        defaultDataSourceConfig.get("username").toString(), defaultDataSourceConfig.get("password").toString()));
+    dynamicDataSource.setDefaultTargetDataSource(createDataSource("default", defaultDataSourceConfig, null));
 
     return dynamicDataSource;
   }
 
+  /**
+   * 创建单个分库的数据源
+   * 开启 stmtCache 时使用连接池，并打开驱动的服务端预编译与预编译缓存：
+   * 每个连接只属于一个分库，驱动按 sql 缓存，相当于按 (物理sql, 分库) 缓存；
+   * 同一条逻辑语句在每个分库会变成 tbCount 条物理语句，所以缓存大小按 逻辑语句数 * 分表数 计算。
+   * 服务端预编译语句在 MySQL 上按连接保留，一个连接池最多占用 缓存大小 * maxSize 条，
+   * 超过 max_prepared_stmt_count 后 prepare 会失败，所以缓存大小不超过 stmtCache.maxServerStmts / maxSize。
+   * 如 size=25、tbCount=128、maxSize=10 时需要 32000 条，超过 MySQL 默认的 16382，缓存会被限制为每个连接 1638 条。
+   * 分库的物理连接经过预热器包装，连接池每新建一个连接（包括 maxLifetime 到期后替换的连接）都会先预热再放入连接池
+   * @param name 数据源名字
+   * @param objMap 数据源配置
+   * @param statementWarmer 预热器，默认数据源为 null
+   * @return
+   */
+  private DataSource createDataSource(String name, Map<String, Object> objMap, ShardStatementWarmer statementWarmer) {
+    String url = objMap.get("url").toString();
+    String username = objMap.get("username").toString();
+    String password = objMap.get("password").toString();
+    if (!stmtCacheEnabled) {
+      return new DriverManagerDataSource(url, username, password);
+    }
+
+    Properties properties = new Properties();
+    properties.setProperty("cachePrepStmts", "true");
+    properties.setProperty("useServerPrepStmts", "true");
+    properties.setProperty("prepStmtCacheSize", String.valueOf(prepStmtCacheSize));
+    properties.setProperty("prepStmtCacheSqlLimit", String.valueOf(stmtCacheSqlLimit));
+    DataSource driverDataSource = new DriverDataSource(url, null, properties, username, password);
+    // 分库名为 db + 库路由，如 db01
+    if (null != statementWarmer && name.startsWith("db")) {
+      driverDataSource = statementWarmer.warming(name.substring(2), driverDataSource);
+    }
+
+    HikariConfig hikariConfig = new HikariConfig();
+    hikariConfig.setPoolName("db-router-" + name);
+    hikariConfig.setDataSource(driverDataSource);
+    hikariConfig.setMaximumPoolSize(poolMaxSize);
+    hikariConfig.setMinimumIdle(poolMinIdle);
+    return new HikariDataSource(hikariConfig);
+  }
+
   /**
    * 根据dbRouterConfig初始化IDBRouterStrategy
    * 用于数据源路由，并保存路由结果到ThreadLocal
    * 方便外部使用硬编码方式实现分库分表路由
+   * 使用方自定义了路由策略时，以使用方为准
    * @param dbRouterConfig
    * @return
    */
   @Bean
+  @ConditionalOnMissingBean
   public IDBRouterStrategy dbRouterStrategy(DBRouterConfig dbRouterConfig) {
     return new DBRouterStrategyHashCode(dbRouterConfig);
   }
 
+  /**
+   * 全分片流式扫描，用于导出、回填等需要遍历所有分库分表的场景
+   * @param dataSource
+   * @param dbRouterStrategy
+   * @return
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public ShardScanner shardScanner(DataSource dataSource, IDBRouterStrategy dbRouterStrategy) {
+    return new ShardScanner(dataSource, dbRouterStrategy);
+  }
+
+  /**
+   * 按月分表预建表，配置了 timeTables 时启动即创建未来 timeTablesAhead 个月的分表，之后每天检查一次
+   * @param dataSource
+   * @param dbRouterConfig
+   * @return
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "mini-db-router.jdbc.datasource", name = "timeTables")
+  public TimeShardTableCreator timeShardTableCreator(DataSource dataSource, DBRouterConfig dbRouterConfig) {
+    return new TimeShardTableCreator(dataSource, new DBRouterStrategyTimeRange(dbRouterConfig), timeTables, timeTablesAhead,
+        timeTablesAllDb);
+  }
+
   /**
    * 提供对事务管理 transactionTemplate
    * @param dataSource
@@ -158,6 +363,45 @@ public class DataSourceAutoConfig implements EnvironmentAware {
     dbCount = Integer.valueOf(environment.getProperty(prefix + "dbCount"));
     tbCount = Integer.valueOf(environment.getProperty(prefix + "tbCount"));
     routerKey = environment.getProperty(prefix + "routerKey");
+    executorThreads = environment.getProperty(prefix + "executorThreads", Integer.class,
+        Runtime.getRuntime().availableProcessors());
+    timeTablesAhead = environment.getProperty(prefix + "timeTablesAhead", Integer.class, 3);
+    timeTablesAllDb = environment.getProperty(prefix + "timeTablesAllDb", Boolean.class, false);
+    stmtCacheEnabled = environment.getProperty(prefix + "stmtCache.enabled", Boolean.class, false);
+    stmtCacheSize = environment.getProperty(prefix + "stmtCache.size", Integer.class, 25);
+    stmtCacheSqlLimit = environment.getProperty(prefix + "stmtCache.sqlLimit", Integer.class, 2048);
+    String hotStatements = environment.getProperty(prefix + "stmtCache.hotStatements");
+    if (StringUtils.isNotBlank(hotStatements)) {
+      for (String statement : hotStatements.split(",")) {
+        stmtCacheHotStatements.add(statement.trim());
+      }
+    }
+    poolMaxSize = environment.getProperty(prefix + "pool.maxSize", Integer.class, 10);
+    poolMinIdle = environment.getProperty(prefix + "pool.minIdle", Integer.class, poolMaxSize);
+    stmtCacheMaxServerStmts = environment.getProperty(prefix + "stmtCache.maxServerStmts", Integer.class, 16382);
+    prepStmtCacheSize = Math.min(stmtCacheSize * tbCount, stmtCacheMaxServerStmts / poolMaxSize);
+    if (stmtCacheEnabled && prepStmtCacheSize < stmtCacheSize * tbCount) {
+      logger.warn("预编译缓存超过服务端预编译语句上限，每个连接的缓存从 {} 限制为 {}，可缓存的逻辑语句数为 {}",
+          stmtCacheSize * tbCount, prepStmtCacheSize, prepStmtCacheSize / tbCount);
+    }
+    if (stmtCacheEnabled && prepStmtCacheSize < tbCount) {
+      throw new RuntimeException("stmtCache.maxServerStmts too small, each connection can not cache one statement of "
+          + tbCount + " tables：" + stmtCacheMaxServerStmts);
+    }
+    String tables = environment.getProperty(prefix + "timeTables");
+    if (StringUtils.isNotBlank(tables)) {
+      for (String table : tables.split(",")) {
+        timeTables.add(table.trim());
+      }
+    }
+
+    // 广播表，统一小写，方便匹配sql中的表名
+    String broadcast = environment.getProperty(prefix + "broadcastTables");
+    if (StringUtils.isNotBlank(broadcast)) {
+      for (String table : broadcast.split(",")) {
+        broadcastTables.add(table.trim().toLowerCase());
+      }
+    }
 
     // 分库分表数据源
     // 其他数据库源list
@@ -173,6 +417,7 @@ public class DataSourceAutoConfig implements EnvironmentAware {
     // 默认数据源，默认数据源名字 + 默认数据源配置 保存在defaultDataSourceConfig
     String defaultData = environment.getProperty(prefix + "default");
     defaultDataSourceConfig = PropertyUtil.handle(environment, prefix + defaultData, Map.class);
+    broadcastDefault = !dataSourceMap.containsKey(defaultData);
 
   }
 }
@@ -0,0 +1,81 @@
+package cn.twinkle.middleware.dbs.router.config;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.DBRouterJoinPoint;
+import cn.twinkle.middleware.dbs.router.diagnostics.ShardDiagnostics;
+import cn.twinkle.middleware.dbs.router.diagnostics.ShardDiagnosticsEndpoint;
+import cn.twinkle.middleware.dbs.router.diagnostics.ShardDiagnosticsMBeanRegistrar;
+import cn.twinkle.middleware.dbs.router.diagnostics.ShardStatementTracker;
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementCacheMonitor;
+import javax.sql.DataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片诊断自动配置，默认关闭，mini-db-router.jdbc.datasource.diagnostics.enabled=true 开启
+ * 开启后会给所有 mapper 语句增加一个 Executor 拦截器，已有使用方升级时不受影响，需要时再显式开启
+ * 引入 actuator 时暴露 dbrouter 端点，否则注册为 JMX MBean
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mini-db-router.jdbc.datasource.diagnostics", name = "enabled", havingValue = "true")
+public class DiagnosticsAutoConfig {
+
+  private static final String ACTUATOR_ENDPOINT = "org.springframework.boot.actuate.endpoint.annotation.Endpoint";
+
+  /**
+   * 各分库语句执行统计
+   * slowThreshold 慢语句阈值（毫秒，默认 200），slowCapacity 保留的慢语句数（默认 100）
+   * @param environment
+   * @return
+   */
+  @Bean
+  public ShardStatementTracker shardStatementTracker(Environment environment) {
+    String prefix = "mini-db-router.jdbc.datasource.diagnostics.";
+    return new ShardStatementTracker(environment.getProperty(prefix + "slowThreshold", Long.class, 200L),
+        environment.getProperty(prefix + "slowCapacity", Integer.class, 100));
+  }
+
+  @Bean
+  public ShardDiagnostics shardDiagnostics(DBRouterConfig dbRouterConfig, DBRouterJoinPoint dbRouterJoinPoint,
+                                           DataSource dataSource, ShardStatementTracker shardStatementTracker,
+                                           ObjectProvider<ShardStatementCacheMonitor> statementCacheMonitor,
+                                           ObjectProvider<SqlSessionFactory> sqlSessionFactory) {
+    return new ShardDiagnostics(dbRouterConfig, dbRouterJoinPoint, dataSource, shardStatementTracker,
+        statementCacheMonitor.getIfAvailable(), sqlSessionFactory);
+  }
+
+  /**
+   * 引入 actuator 时暴露端点；单独的配置类，没有 actuator 时不会加载端点类
+   */
+  @Configuration
+  @ConditionalOnClass(name = ACTUATOR_ENDPOINT)
+  static class EndpointConfig {
+
+    @Bean
+    public ShardDiagnosticsEndpoint shardDiagnosticsEndpoint(ShardDiagnostics shardDiagnostics) {
+      return new ShardDiagnosticsEndpoint(shardDiagnostics);
+    }
+  }
+
+  /**
+   * 没有 actuator 时注册 JMX MBean
+   */
+  @Configuration
+  @ConditionalOnMissingClass(ACTUATOR_ENDPOINT)
+  static class MBeanConfig {
+
+    @Bean
+    public ShardDiagnosticsMBeanRegistrar shardDiagnosticsMBeanRegistrar(ShardDiagnostics shardDiagnostics) {
+      return new ShardDiagnosticsMBeanRegistrar(shardDiagnostics);
+    }
+  }
+
+}
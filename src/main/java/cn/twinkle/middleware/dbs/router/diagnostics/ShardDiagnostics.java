@@ -0,0 +1,277 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.DBRouterJoinPoint;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouter;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterRange;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.dynamic.DynamicMybatisPlugin;
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementCacheMonitor;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRangeRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import com.alibaba.fastjson.JSON;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片诊断
+ * 1、explain：按 mapper 方法上的路由注解，用给定的路由字段值计算路由结果，并给出经过 DynamicMybatisPlugin 改写后的物理sql，
+ *    不执行语句、不影响当前线程的路由，线上排查路由问题时不需要打开路由日志
+ * 2、stats：各分库正在执行的语句数、累计执行次数、连接池状态、预编译缓存命中率和最近的慢语句
+ */
+public class ShardDiagnostics implements ShardDiagnosticsMBean {
+
+  /**
+   * stats 中最多返回的慢语句数
+   */
+  private static final int SLOWEST_LIMIT = 20;
+
+  private DBRouterConfig dbRouterConfig;
+
+  private DBRouterJoinPoint dbRouterJoinPoint;
+
+  private DataSource dataSource;
+
+  private ShardStatementTracker statementTracker;
+
+  /**
+   * 未开启预编译缓存时为 null
+   */
+  private ShardStatementCacheMonitor statementCacheMonitor;
+
+  private ObjectProvider<SqlSessionFactory> sqlSessionFactoryProvider;
+
+  private DynamicMybatisPlugin plugin;
+
+  public ShardDiagnostics(DBRouterConfig dbRouterConfig, DBRouterJoinPoint dbRouterJoinPoint, DataSource dataSource,
+                          ShardStatementTracker statementTracker, ShardStatementCacheMonitor statementCacheMonitor,
+                          ObjectProvider<SqlSessionFactory> sqlSessionFactoryProvider) {
+    this.dbRouterConfig = dbRouterConfig;
+    this.dbRouterJoinPoint = dbRouterJoinPoint;
+    this.dataSource = dataSource;
+    this.statementTracker = statementTracker;
+    this.statementCacheMonitor = statementCacheMonitor;
+    this.sqlSessionFactoryProvider = sqlSessionFactoryProvider;
+    this.plugin = new DynamicMybatisPlugin(dbRouterConfig);
+  }
+
+  /**
+   * 解释一次路由
+   * @param statementId MappedStatement id，如 cn.xx.dao.IUserDao.queryUserInfoByUserId
+   * @param key 路由字段值；范围路由时为区间开始
+   * @param tbKey 分表字段值，与 key 相同时可为空；范围路由时为区间结束
+   * @return 路由策略、逻辑sql、各分片的物理sql
+   */
+  public Map<String, Object> explain(String statementId, String key, String tbKey) {
+    if (StringUtils.isBlank(statementId) || StringUtils.isBlank(key)) {
+      throw new RuntimeException("explain statement or key is null！");
+    }
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactoryProvider.getIfAvailable();
+    Configuration configuration = null == sqlSessionFactory ? null : sqlSessionFactory.getConfiguration();
+    if (null == configuration || !configuration.hasStatement(statementId)) {
+      throw new RuntimeException("mapped statement not found：" + statementId);
+    }
+    MappedStatement mappedStatement = configuration.getMappedStatement(statementId);
+
+    Class<?> mapperClass = mapperClass(statementId);
+    Method method = mapperMethod(mapperClass, statementId.substring(statementId.lastIndexOf(".") + 1));
+    DBRouter dbRouter = null == method ? null : method.getAnnotation(DBRouter.class);
+    DBRouterRange dbRouterRange = null == method ? null : method.getAnnotation(DBRouterRange.class);
+    DBRouterStrategy dbRouterStrategy = null == mapperClass ? null : mapperClass.getAnnotation(DBRouterStrategy.class);
+    boolean splitTable = null != dbRouterStrategy && dbRouterStrategy.splitTable();
+
+    // 路由计算，同时准备动态sql需要的入参
+    IDBRouterStrategy strategy;
+    List<ShardRoute> routes;
+    Map<String, Object> parameter = new HashMap<>();
+    if (null != dbRouterRange) {
+      if (StringUtils.isNotBlank(dbRouterRange.dbKey())) {
+        throw new RuntimeException("explain not support range router with dbKey：" + statementId);
+      }
+      String endKey = StringUtils.isNotBlank(tbKey) ? tbKey : key;
+      strategy = dbRouterJoinPoint.getStrategy(dbRouterRange.strategy());
+      routes = ((IDBRangeRouterStrategy) strategy).doRangeRouter(key, endKey);
+      parameter.put(dbRouterRange.start(), key);
+      parameter.put(dbRouterRange.end(), endKey);
+    } else {
+      strategy = dbRouterJoinPoint.getStrategy(null == dbRouter ? IDBRouterStrategy.class : dbRouter.strategy());
+      routes = Collections.singletonList(route(strategy, key, tbKey));
+      String attr = null != dbRouter && StringUtils.isNotBlank(dbRouter.key()) ? dbRouter.key() : dbRouterConfig.getRouterKey();
+      if (StringUtils.isNotBlank(attr)) {
+        parameter.put(attr, key);
+      }
+      if (null != dbRouter && StringUtils.isNotBlank(dbRouter.dbKey())) {
+        parameter.put(dbRouter.dbKey(), key);
+      }
+      if (null != dbRouter && StringUtils.isNotBlank(dbRouter.tbKey())) {
+        parameter.put(dbRouter.tbKey(), StringUtils.isNotBlank(tbKey) ? tbKey : key);
+      }
+    }
+
+    Map<String, Object> explain = new LinkedHashMap<>();
+    explain.put("statement", statementId);
+    explain.put("strategy", strategy.getClass().getName());
+    explain.put("splitTable", splitTable);
+    String sql = null;
+    try {
+      // 动态sql只用路由字段生成，其他条件可能与实际执行时不同
+      sql = mappedStatement.getBoundSql(parameter).getSql();
+      explain.put("sql", sql);
+    } catch (RuntimeException e) {
+      explain.put("sqlError", e.getMessage());
+    }
+    List<Map<String, Object>> shards = new ArrayList<>();
+    for (ShardRoute route : routes) {
+      Map<String, Object> shard = new LinkedHashMap<>();
+      shard.put("shard", route.toString());
+      shard.put("dataSource", null == route.getDbKey() ? "default" : "db" + route.getDbKey());
+      shard.put("dbKey", route.getDbKey());
+      shard.put("tbKey", route.getTbKey());
+      if (null != sql) {
+        shard.put("physicalSql", splitTable ? plugin.routeSql(sql, route.getTbKey()) : sql);
+      }
+      shards.add(shard);
+    }
+    explain.put("routes", shards);
+    return explain;
+  }
+
+  /**
+   * 用路由策略计算路由，计算完成后清空路由，不影响当前线程
+   */
+  private ShardRoute route(IDBRouterStrategy strategy, String key, String tbKey) {
+    try {
+      if (StringUtils.isBlank(tbKey)) {
+        strategy.doRouter(key);
+      } else {
+        strategy.doRouter(key, tbKey);
+      }
+      return new ShardRoute(strategy.getDBKey(), strategy.getTBKey());
+    } finally {
+      strategy.clear();
+    }
+  }
+
+  private Class<?> mapperClass(String statementId) {
+    try {
+      return Class.forName(statementId.substring(0, statementId.lastIndexOf(".")));
+    } catch (ClassNotFoundException | StringIndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
+  /**
+   * 同名方法优先取带路由注解的
+   */
+  private Method mapperMethod(Class<?> mapperClass, String methodName) {
+    if (null == mapperClass) {
+      return null;
+    }
+    Method found = null;
+    for (Method method : mapperClass.getMethods()) {
+      if (!method.getName().equals(methodName)) {
+        continue;
+      }
+      if (method.isAnnotationPresent(DBRouter.class) || method.isAnnotationPresent(DBRouterRange.class)) {
+        return method;
+      }
+      found = method;
+    }
+    return found;
+  }
+
+  /**
+   * 各分库实时状态
+   * @return 正在执行的语句数、累计执行次数、连接池状态、预编译缓存命中率、最近的慢语句
+   */
+  public Map<String, Object> stats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("inFlight", statementTracker.inFlight());
+    stats.put("calls", statementTracker.calls());
+    stats.put("pools", pools());
+    stats.put("statementCache", statementCache());
+    stats.put("slowThresholdMillis", statementTracker.getSlowThresholdMillis());
+    stats.put("slowest", statementTracker.slowest(SLOWEST_LIMIT));
+    return stats;
+  }
+
+  private Map<String, Object> pools() {
+    Map<String, Object> pools = new TreeMap<>();
+    if (dataSource instanceof AbstractRoutingDataSource) {
+      AbstractRoutingDataSource routingDataSource = (AbstractRoutingDataSource) dataSource;
+      for (Map.Entry<Object, DataSource> entry : routingDataSource.getResolvedDataSources().entrySet()) {
+        pools.put(entry.getKey().toString(), poolState(entry.getValue()));
+      }
+      if (null != routingDataSource.getResolvedDefaultDataSource()) {
+        pools.put("default", poolState(routingDataSource.getResolvedDefaultDataSource()));
+      }
+    } else {
+      pools.put("default", poolState(dataSource));
+    }
+    return pools;
+  }
+
+  private Object poolState(DataSource dataSource) {
+    if (!(dataSource instanceof HikariDataSource)) {
+      return "unpooled";
+    }
+    HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+    HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+    if (null == pool) {
+      return "not started";
+    }
+    Map<String, Object> state = new LinkedHashMap<>();
+    state.put("active", pool.getActiveConnections());
+    state.put("idle", pool.getIdleConnections());
+    state.put("total", pool.getTotalConnections());
+    state.put("maximum", hikariDataSource.getMaximumPoolSize());
+    state.put("threadsAwaiting", pool.getThreadsAwaitingConnection());
+    return state;
+  }
+
+  private Object statementCache() {
+    if (null == statementCacheMonitor) {
+      return "disabled";
+    }
+    Map<String, Object> statementCache = new TreeMap<>();
+    for (Map.Entry<String, long[]> entry : statementCacheMonitor.snapshot().entrySet()) {
+      long hits = entry.getValue()[0];
+      long total = hits + entry.getValue()[1];
+      Map<String, Object> shard = new LinkedHashMap<>();
+      shard.put("hits", hits);
+      shard.put("misses", entry.getValue()[1]);
+      shard.put("hitRate", total == 0 ? 0 : hits * 1.0 / total);
+      statementCache.put(entry.getKey(), shard);
+    }
+    return statementCache;
+  }
+
+  @Override
+  public String getStats() {
+    return JSON.toJSONString(stats());
+  }
+
+  @Override
+  public String explainRoute(String statement, String key, String tbKey) {
+    return JSON.toJSONString(explain(statement, key, tbKey));
+  }
+
+}
@@ -0,0 +1,35 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片诊断 actuator 端点，需要在 management.endpoints.web.exposure.include 中加入 dbrouter
+ * GET /actuator/dbrouter                                               各分库实时状态
+ * GET /actuator/dbrouter/{statement}?key=xx[&tbKey=xx]                 解释一次路由
+ */
+@Endpoint(id = "dbrouter")
+public class ShardDiagnosticsEndpoint {
+
+  private ShardDiagnostics shardDiagnostics;
+
+  public ShardDiagnosticsEndpoint(ShardDiagnostics shardDiagnostics) {
+    this.shardDiagnostics = shardDiagnostics;
+  }
+
+  @ReadOperation
+  public Map<String, Object> stats() {
+    return shardDiagnostics.stats();
+  }
+
+  @ReadOperation
+  public Map<String, Object> explain(@Selector String statement, String key, @Nullable String tbKey) {
+    return shardDiagnostics.explain(statement, key, tbKey);
+  }
+
+}
@@ -0,0 +1,25 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片诊断 JMX 接口，没有引入 actuator 时通过 JMX 暴露，返回 JSON 字符串
+ */
+public interface ShardDiagnosticsMBean {
+
+  /**
+   * 各分库实时状态
+   * @return JSON
+   */
+  String getStats();
+
+  /**
+   * 解释一次路由
+   * @param statement MappedStatement id
+   * @param key 路由字段值；范围路由时为区间开始
+   * @param tbKey 分表字段值，与 key 相同时可为空；范围路由时为区间结束
+   * @return JSON
+   */
+  String explainRoute(String statement, String key, String tbKey);
+
+}
@@ -0,0 +1,44 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 没有引入 actuator 时，把分片诊断注册为 JMX MBean：cn.twinkle.middleware.dbs.router:type=ShardDiagnostics
+ */
+public class ShardDiagnosticsMBeanRegistrar implements InitializingBean, DisposableBean {
+
+  public static final String OBJECT_NAME = "cn.twinkle.middleware.dbs.router:type=ShardDiagnostics";
+
+  private ShardDiagnostics shardDiagnostics;
+
+  private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  public ShardDiagnosticsMBeanRegistrar(ShardDiagnostics shardDiagnostics) {
+    this.shardDiagnostics = shardDiagnostics;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    ObjectName objectName = new ObjectName(OBJECT_NAME);
+    // 同一个 jvm 中多个容器（如测试）时，以最后启动的为准
+    if (mBeanServer.isRegistered(objectName)) {
+      mBeanServer.unregisterMBean(objectName);
+    }
+    mBeanServer.registerMBean(shardDiagnostics, objectName);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    ObjectName objectName = new ObjectName(OBJECT_NAME);
+    if (mBeanServer.isRegistered(objectName)) {
+      mBeanServer.unregisterMBean(objectName);
+    }
+  }
+
+}
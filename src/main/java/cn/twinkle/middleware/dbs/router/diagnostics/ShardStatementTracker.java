@@ -0,0 +1,146 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * Mybatis 拦截器，统计各分库正在执行的语句数、累计执行次数，并保留最近的慢语句
+ * 拦截 Executor 时 DBContextHolder 已经是本次语句的路由，热路径上只有计数，不打印日志
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})})
+public class ShardStatementTracker implements Interceptor {
+
+  /**
+   * 慢语句阈值，毫秒
+   */
+  private final long slowThresholdMillis;
+
+  /**
+   * 最多保留的慢语句数
+   */
+  private final int slowCapacity;
+
+  /**
+   * 库 -> 统计
+   */
+  private final Map<String, Stats> shardStats = new ConcurrentHashMap<>();
+
+  /**
+   * 最近的慢语句，超过容量时丢弃最早的
+   */
+  private final ArrayDeque<SlowStatement> slowStatements;
+
+  public ShardStatementTracker(long slowThresholdMillis, int slowCapacity) {
+    this.slowThresholdMillis = slowThresholdMillis;
+    this.slowCapacity = slowCapacity;
+    this.slowStatements = new ArrayDeque<>(slowCapacity);
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    String dbKey = DBContextHolder.getDBKey();
+    String shard = null == dbKey ? "default" : "db" + dbKey;
+    // 先 get，只有第一次才 computeIfAbsent；java 8 的 computeIfAbsent 即使 key 已存在也会锁住桶
+    Stats stats = shardStats.get(shard);
+    if (null == stats) {
+      stats = shardStats.computeIfAbsent(shard, k -> new Stats());
+    }
+    stats.inFlight.increment();
+    stats.calls.increment();
+    long start = System.nanoTime();
+    try {
+      return invocation.proceed();
+    } finally {
+      stats.inFlight.decrement();
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      if (elapsedMillis >= slowThresholdMillis) {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        recordSlow(new SlowStatement(mappedStatement.getId(), new ShardRoute(dbKey, DBContextHolder.getTBKey()).toString(),
+            elapsedMillis, System.currentTimeMillis()));
+      }
+    }
+  }
+
+  private void recordSlow(SlowStatement slowStatement) {
+    synchronized (slowStatements) {
+      if (slowStatements.size() >= slowCapacity) {
+        slowStatements.pollFirst();
+      }
+      slowStatements.addLast(slowStatement);
+    }
+  }
+
+  /**
+   * 各分库正在执行的语句数
+   * @return 库 -> 语句数
+   */
+  public Map<String, Long> inFlight() {
+    Map<String, Long> inFlight = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : shardStats.entrySet()) {
+      inFlight.put(entry.getKey(), entry.getValue().inFlight.sum());
+    }
+    return inFlight;
+  }
+
+  /**
+   * 各分库累计执行的语句数
+   * @return 库 -> 语句数
+   */
+  public Map<String, Long> calls() {
+    Map<String, Long> calls = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : shardStats.entrySet()) {
+      calls.put(entry.getKey(), entry.getValue().calls.sum());
+    }
+    return calls;
+  }
+
+  /**
+   * 最近的慢语句，按耗时倒序
+   * @param limit 最多返回条数
+   * @return 慢语句
+   */
+  public List<SlowStatement> slowest(int limit) {
+    List<SlowStatement> slowest;
+    synchronized (slowStatements) {
+      slowest = new ArrayList<>(slowStatements);
+    }
+    slowest.sort(Comparator.comparingLong(SlowStatement::getElapsedMillis).reversed());
+    return slowest.size() > limit ? new ArrayList<>(slowest.subList(0, limit)) : slowest;
+  }
+
+  public long getSlowThresholdMillis() {
+    return slowThresholdMillis;
+  }
+
+  private static class Stats {
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+  }
+
+}
@@ -0,0 +1,48 @@
+package cn.twinkle.middleware.dbs.router.diagnostics;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 一次慢语句记录
+ */
+public class SlowStatement {
+  /**
+   * MappedStatement id，如 cn.xx.dao.IUserDao.queryUserInfoByUserId
+   */
+  private final String statement;
+  /**
+   * 分片，如 db01_003；默认数据源为 default
+   */
+  private final String shard;
+  /**
+   * 耗时，毫秒
+   */
+  private final long elapsedMillis;
+  /**
+   * 执行完成时间，毫秒时间戳
+   */
+  private final long timestamp;
+
+  public SlowStatement(String statement, String shard, long elapsedMillis, long timestamp) {
+    this.statement = statement;
+    this.shard = shard;
+    this.elapsedMillis = elapsedMillis;
+    this.timestamp = timestamp;
+  }
+
+  public String getStatement() {
+    return statement;
+  }
+
+  public String getShard() {
+    return shard;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+}
@@ -1,6 +1,13 @@
 package cn.twinkle.middleware.dbs.router.dynamic;
 
 import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
 /**
@@ -14,14 +21,40 @@ import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
  * 需要继承AbstractRoutingDataSource，来实现切换数据源的方法
  * 返回的是线程本地变量保存的数据库路由结果
  */
-public class DynamicDataSource extends AbstractRoutingDataSource {
+public class DynamicDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+  private Logger logger = LoggerFactory.getLogger(DynamicDataSource.class);
 
   /**
    * 这里返回数据库路由结果：db+两位路由序号
+   * 没有库路由时返回 null，使用默认数据源
    * @return
    */
   @Override
   protected Object determineCurrentLookupKey() {
-    return "db" + DBContextHolder.getDBKey();
+    String dbKey = DBContextHolder.getDBKey();
+    return null == dbKey ? null : "db" + dbKey;
+  }
+
+  /**
+   * 容器关闭时关闭各分库数据源（如连接池），目标数据源只保存在这里，不会被容器单独销毁
+   */
+  @Override
+  public void destroy() {
+    Set<DataSource> dataSources = Collections.newSetFromMap(new IdentityHashMap<>());
+    dataSources.addAll(getResolvedDataSources().values());
+    if (null != getResolvedDefaultDataSource()) {
+      dataSources.add(getResolvedDefaultDataSource());
+    }
+    for (DataSource dataSource : dataSources) {
+      if (!(dataSource instanceof AutoCloseable)) {
+        continue;
+      }
+      try {
+        ((AutoCloseable) dataSource).close();
+      } catch (Exception e) {
+        logger.warn("关闭数据源失败 {}", dataSource, e);
+      }
+    }
   }
 }
@@ -1,6 +1,7 @@
 package cn.twinkle.middleware.dbs.router.dynamic;
 
 import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
 import cn.twinkle.middleware.dbs.router.annotation.DBRouterStrategy;
 import java.lang.reflect.Field;
 import java.sql.Connection;
@@ -41,9 +42,30 @@ public class DynamicMybatisPlugin implements Interceptor {
   /**
    * 正则表达式匹配sql语句，用于修改sql语句中的表名
    * 但是这里只能修改一个表名，也就是说，不支持连表查询；只允许一张表表名的修改
+   * 例外是广播表：广播表在每个分库都有完整数据，不加后缀，可以直接与分表连表查询
    */
   private Pattern pattern = Pattern.compile("(from|into|update)[\\s]{1,}(\\w{1,})", Pattern.CASE_INSENSITIVE);
 
+  private DBRouterConfig dbRouterConfig;
+
+  /**
+   * 预编译缓存命中统计，未开启预编译缓存时为 null
+   */
+  private ShardStatementCacheMonitor statementCacheMonitor;
+
+  public DynamicMybatisPlugin() {
+    this(new DBRouterConfig());
+  }
+
+  public DynamicMybatisPlugin(DBRouterConfig dbRouterConfig) {
+    this(dbRouterConfig, null);
+  }
+
+  public DynamicMybatisPlugin(DBRouterConfig dbRouterConfig, ShardStatementCacheMonitor statementCacheMonitor) {
+    this.dbRouterConfig = dbRouterConfig;
+    this.statementCacheMonitor = statementCacheMonitor;
+  }
+
   /**
    * 定义拦截规则
    * @param invocation
@@ -65,6 +87,7 @@ public class DynamicMybatisPlugin implements Interceptor {
     DBRouterStrategy dbRouterStrategy = clazz.getAnnotation(DBRouterStrategy.class);
     // 不用分表，直接放行
     if (null == dbRouterStrategy || !dbRouterStrategy.splitTable()){
+      recordStatement(invocation, statementHandler.getBoundSql().getSql());
       return invocation.proceed();
     }
     // 开始路由到分表
@@ -73,15 +96,8 @@ public class DynamicMybatisPlugin implements Interceptor {
     BoundSql boundSql = statementHandler.getBoundSql();
     String sql = boundSql.getSql();
 
-    // 先匹配表名字段
-    Matcher matcher = pattern.matcher(sql);
-    String tableName = null;
-    if (matcher.find()) {
-      tableName = matcher.group().trim();
-    }
-    assert null != tableName;
     // 替换表名字段，也就是加上后缀001等
-    String replaceSql = matcher.replaceAll(tableName + "_" + DBContextHolder.getTBKey());
+    String replaceSql = routeSql(sql, DBContextHolder.getTBKey());
 
     // 通过反射修改SQL语句
     Field field = boundSql.getClass().getDeclaredField("sql");
@@ -91,7 +107,38 @@ public class DynamicMybatisPlugin implements Interceptor {
     field.setAccessible(false);
 
     //放行sql
+    recordStatement(invocation, replaceSql);
     return invocation.proceed();
   }
 
+  /**
+   * 把sql中的表名替换为分表表名
+   * 先匹配表名字段，再替换表名字段，也就是加上后缀001等；广播表保持原表名
+   * @param sql 逻辑sql
+   * @param tbKey 表路由
+   * @return 物理sql
+   */
+  public String routeSql(String sql, String tbKey) {
+    Matcher matcher = pattern.matcher(sql);
+    StringBuffer replaceSql = new StringBuffer();
+    while (matcher.find()) {
+      String tableName = matcher.group(2);
+      if (dbRouterConfig.getBroadcastTables().contains(tableName.toLowerCase())) {
+        continue;
+      }
+      matcher.appendReplacement(replaceSql, Matcher.quoteReplacement(matcher.group() + "_" + tbKey));
+    }
+    matcher.appendTail(replaceSql);
+    return replaceSql.toString();
+  }
+
+  /**
+   * 记录本次预编译的物理sql，用于统计各分库预编译缓存命中率
+   */
+  private void recordStatement(Invocation invocation, String sql) {
+    if (null != statementCacheMonitor) {
+      statementCacheMonitor.record(DBContextHolder.getDBKey(), (Connection) invocation.getArgs()[0], sql);
+    }
+  }
+
 }
\ No newline at end of file
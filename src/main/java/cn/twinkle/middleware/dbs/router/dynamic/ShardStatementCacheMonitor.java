@@ -0,0 +1,192 @@
+package cn.twinkle.middleware.dbs.router.dynamic;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片预编译语句缓存命中率统计
+ * 驱动的预编译缓存（cachePrepStmts）是每个物理连接一份、按 sql 做 LRU 淘汰的，而且不对外暴露命中率，
+ * 这里按同样的规则为每个物理连接维护一份 sql 的 LRU 影子缓存，据此统计各分库的命中、未命中次数
+ * 每次预编译都会调用，查找连接的影子缓存不加全局锁，只锁该连接自己的缓存；连接同一时间只被一个线程使用，这把锁基本没有竞争
+ */
+public class ShardStatementCacheMonitor {
+
+  /**
+   * 每个连接缓存的语句数，与驱动 prepStmtCacheSize 一致
+   */
+  private final int cacheSize;
+
+  /**
+   * 超过该长度的 sql 驱动不缓存，与驱动 prepStmtCacheSqlLimit 一致
+   */
+  private final int sqlLimit;
+
+  /**
+   * 物理连接 -> sql 影子缓存
+   * 驱动连接不重写 equals、hashCode，按连接对象区分；连接被连接池关闭后，在新连接第一次登记时清理
+   */
+  private final Map<Connection, Map<String, Boolean>> connectionCaches = new ConcurrentHashMap<>();
+
+  /**
+   * 库路由 -> 统计
+   */
+  private final Map<String, Stats> shardStats = new ConcurrentHashMap<>();
+
+  public ShardStatementCacheMonitor(int cacheSize, int sqlLimit) {
+    this.cacheSize = cacheSize;
+    this.sqlLimit = sqlLimit;
+  }
+
+  /**
+   * 记录一次预编译
+   * @param dbKey 库路由，默认数据源为 null
+   * @param connection 连接
+   * @param sql 物理sql
+   * @return 是否命中缓存
+   */
+  public boolean record(String dbKey, Connection connection, String sql) {
+    String shard = null == dbKey ? "default" : "db" + dbKey;
+    // 每次预编译都会调用，先 get，避免 computeIfAbsent 在 key 已存在时也锁桶
+    Stats stats = shardStats.get(shard);
+    if (null == stats) {
+      stats = shardStats.computeIfAbsent(shard, k -> new Stats());
+    }
+    if (sql.length() > sqlLimit) {
+      stats.misses.increment();
+      return false;
+    }
+    Map<String, Boolean> cache = connectionCache(physical(connection));
+    boolean hit;
+    synchronized (cache) {
+      hit = null != cache.get(sql);
+      if (!hit) {
+        cache.put(sql, Boolean.TRUE);
+      }
+    }
+    if (hit) {
+      stats.hits.increment();
+    } else {
+      stats.misses.increment();
+    }
+    return hit;
+  }
+
+  /**
+   * 记录一次预热的预编译，只放入影子缓存，不计入命中率
+   * @param connection 连接
+   * @param sql 物理sql
+   */
+  public void warm(Connection connection, String sql) {
+    if (sql.length() > sqlLimit) {
+      return;
+    }
+    Map<String, Boolean> cache = connectionCache(physical(connection));
+    synchronized (cache) {
+      cache.put(sql, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * 连接的影子缓存，先 get，只有新连接才登记并清理已关闭的连接
+   */
+  private Map<String, Boolean> connectionCache(Connection connection) {
+    Map<String, Boolean> cache = connectionCaches.get(connection);
+    if (null != cache) {
+      return cache;
+    }
+    removeClosed();
+    return connectionCaches.computeIfAbsent(connection, c -> newLruCache());
+  }
+
+  /**
+   * 移除已经被连接池关闭的连接；新物理连接通常是连接池替换旧连接时创建的，所以在这里清理即可
+   */
+  private void removeClosed() {
+    Iterator<Connection> iterator = connectionCaches.keySet().iterator();
+    while (iterator.hasNext()) {
+      try {
+        if (iterator.next().isClosed()) {
+          iterator.remove();
+        }
+      } catch (SQLException e) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * 连接池会给物理连接套一层代理，并且每次借出都不一样，这里取出真正的物理连接
+   */
+  private Connection physical(Connection connection) {
+    try {
+      return connection.unwrap(Connection.class);
+    } catch (SQLException e) {
+      return connection;
+    }
+  }
+
+  private Map<String, Boolean> newLruCache() {
+    return new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * 各分库的命中统计
+   * @return 库 -> [命中次数, 未命中次数]
+   */
+  public Map<String, long[]> snapshot() {
+    Map<String, long[]> snapshot = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : shardStats.entrySet()) {
+      snapshot.put(entry.getKey(), new long[]{entry.getValue().hits.sum(), entry.getValue().misses.sum()});
+    }
+    return snapshot;
+  }
+
+  /**
+   * 清空统计
+   */
+  public void reset() {
+    shardStats.clear();
+  }
+
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * 正在统计的物理连接数
+   */
+  public int getConnectionCount() {
+    return connectionCaches.size();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("预编译缓存命中率：");
+    for (Map.Entry<String, long[]> entry : snapshot().entrySet()) {
+      long hits = entry.getValue()[0];
+      long total = hits + entry.getValue()[1];
+      builder.append(String.format(" %s %d/%d(%.2f%%)", entry.getKey(), hits, total,
+          total == 0 ? 0 : hits * 100.0 / total));
+    }
+    return builder.toString();
+  }
+
+  private static class Stats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+  }
+
+}
@@ -0,0 +1,265 @@
+package cn.twinkle.middleware.dbs.router.dynamic;
+
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterStrategy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 分片预编译语句预热
+ * 容器启动完成后，取出需要预热的分表语句（@DBRouterStrategy(splitTable = true) 的 mapper 中的静态sql），
+ * 按每个分库的每张分表替换表名，在连接池的连接上预编译一次，放入驱动的预编译缓存，避免上线后首批请求集中 prepare
+ * 1. 预热哪些语句：配置 stmtCache.hotStatements 时按配置顺序取热点语句；
+ *    未配置时只有全部静态分表语句都放得进缓存才预热，放不下时不预热，避免随意挑一部分语句把缓存占满
+ * 2. 预热哪些连接：启动时借出每个分库的 minIdle 个连接预热；连接池之后新建的物理连接（如 maxLifetime 到期替换的连接）
+ *    由 warming 包装的数据源在建连时预热，预热在连接池的建连线程中完成，连接放入连接池前已经预热好
+ * 动态sql（<if>、${} 等）在运行前无法确定最终语句，不参与预热
+ */
+public class ShardStatementWarmer implements SmartInitializingSingleton {
+
+  private Logger logger = LoggerFactory.getLogger(ShardStatementWarmer.class);
+
+  private ObjectProvider<DataSource> dataSourceProvider;
+
+  private DBRouterConfig dbRouterConfig;
+
+  private ShardStatementCacheMonitor statementCacheMonitor;
+
+  private ObjectProvider<SqlSessionFactory> sqlSessionFactoryProvider;
+
+  /**
+   * 配置的热点语句 id，按热度排序；为空时预热全部静态分表语句
+   */
+  private List<String> hotStatementIds;
+
+  /**
+   * 最多预热的逻辑语句数，与预编译缓存按逻辑语句计算的大小一致
+   */
+  private int maxStatements;
+
+  /**
+   * 每个分库预热的连接数
+   */
+  private int connections;
+
+  /**
+   * 每个分库连接池最大连接数，用于检查服务端预编译语句上限
+   */
+  private int poolMaxSize;
+
+  private DynamicMybatisPlugin plugin;
+
+  /**
+   * 需要预热的逻辑sql，容器启动完成前为空，此时新建的连接由启动预热处理
+   */
+  private volatile List<String> statements = Collections.emptyList();
+
+  public ShardStatementWarmer(ObjectProvider<DataSource> dataSourceProvider, DBRouterConfig dbRouterConfig,
+                              ShardStatementCacheMonitor statementCacheMonitor,
+                              ObjectProvider<SqlSessionFactory> sqlSessionFactoryProvider,
+                              List<String> hotStatementIds, int maxStatements, int connections, int poolMaxSize) {
+    this.dataSourceProvider = dataSourceProvider;
+    this.dbRouterConfig = dbRouterConfig;
+    this.statementCacheMonitor = statementCacheMonitor;
+    this.sqlSessionFactoryProvider = sqlSessionFactoryProvider;
+    this.hotStatementIds = hotStatementIds;
+    this.maxStatements = maxStatements;
+    this.connections = connections;
+    this.poolMaxSize = poolMaxSize;
+    this.plugin = new DynamicMybatisPlugin(dbRouterConfig);
+  }
+
+  /**
+   * 包装分库的物理连接数据源，连接池每新建一个物理连接就预热一次
+   * @param dbKey 库路由，如 01
+   * @param dataSource 创建物理连接的数据源
+   * @return 交给连接池的数据源
+   */
+  public DataSource warming(String dbKey, DataSource dataSource) {
+    return new DelegatingDataSource(dataSource) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        warmConnection(dbKey, connection, statements);
+        return connection;
+      }
+
+      @Override
+      public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        warmConnection(dbKey, connection, statements);
+        return connection;
+      }
+    };
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactoryProvider.getIfAvailable();
+    DataSource dataSource = dataSourceProvider.getIfAvailable();
+    if (null == sqlSessionFactory || null == dataSource) {
+      return;
+    }
+    statements = hotStatements(sqlSessionFactory.getConfiguration());
+    if (statements.isEmpty()) {
+      return;
+    }
+    for (int dbIdx = 1; dbIdx <= dbRouterConfig.getDbCount(); dbIdx++) {
+      warmShard(dataSource, String.format("%02d", dbIdx), statements);
+    }
+    logger.info("分片预编译预热完成 语句数：{} 连接数：{}", statements.size(), statementCacheMonitor.getConnectionCount());
+  }
+
+  /**
+   * 需要预热的逻辑sql
+   */
+  private List<String> hotStatements(Configuration configuration) {
+    List<String> hotStatements = new ArrayList<>();
+    if (null != hotStatementIds && !hotStatementIds.isEmpty()) {
+      for (String id : hotStatementIds) {
+        if (hotStatements.size() >= maxStatements) {
+          logger.warn("热点语句数超过每个连接可缓存的逻辑语句数 {}，之后的语句不预热：{}", maxStatements,
+              hotStatementIds.subList(hotStatementIds.indexOf(id), hotStatementIds.size()));
+          break;
+        }
+        MappedStatement mappedStatement = configuration.hasStatement(id) ? configuration.getMappedStatement(id) : null;
+        String sql = null == mappedStatement || !isSplitTable(mappedStatement) ? null : staticSql(mappedStatement);
+        if (null == sql) {
+          logger.warn("热点语句不存在或不是静态分表sql，不预热：{}", id);
+          continue;
+        }
+        hotStatements.add(sql);
+      }
+      return hotStatements;
+    }
+
+    // 同一个语句会以全名、短名各注册一次，短名冲突时是占位对象，这里按 id 去重并跳过占位对象
+    Map<String, String> splitStatements = new TreeMap<>();
+    for (Object object : configuration.getMappedStatements()) {
+      if (!(object instanceof MappedStatement) || !isSplitTable((MappedStatement) object)) {
+        continue;
+      }
+      String sql = staticSql((MappedStatement) object);
+      if (null != sql) {
+        splitStatements.put(((MappedStatement) object).getId(), sql);
+      }
+    }
+    if (splitStatements.size() > maxStatements) {
+      logger.warn("静态分表语句数 {} 超过每个连接可缓存的逻辑语句数 {}，不预热，请配置 stmtCache.hotStatements 指定热点语句",
+          splitStatements.size(), maxStatements);
+      return hotStatements;
+    }
+    hotStatements.addAll(splitStatements.values());
+    return hotStatements;
+  }
+
+  /**
+   * 静态sql，动态sql返回 null
+   */
+  private String staticSql(MappedStatement mappedStatement) {
+    SqlSource sqlSource = mappedStatement.getSqlSource();
+    if (!(sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource)) {
+      return null;
+    }
+    return sqlSource.getBoundSql(null).getSql();
+  }
+
+  private boolean isSplitTable(MappedStatement mappedStatement) {
+    String id = mappedStatement.getId();
+    try {
+      DBRouterStrategy dbRouterStrategy = Class.forName(id.substring(0, id.lastIndexOf(".")))
+          .getAnnotation(DBRouterStrategy.class);
+      return null != dbRouterStrategy && dbRouterStrategy.splitTable();
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 同时借出分库的多个连接，每个连接都预编译所有分表的语句
+   */
+  private void warmShard(DataSource dataSource, String dbKey, List<String> statements) {
+    DBContextHolder.setDBKey(dbKey);
+    List<Connection> borrowed = new ArrayList<>();
+    try {
+      for (int i = 0; i < connections; i++) {
+        borrowed.add(dataSource.getConnection());
+      }
+      if (!borrowed.isEmpty()) {
+        checkServerLimit(dbKey, borrowed.get(0));
+      }
+      for (Connection connection : borrowed) {
+        warmConnection(dbKey, connection, statements);
+      }
+    } catch (SQLException e) {
+      logger.warn("分片预编译预热获取连接失败 库id：{}", dbKey, e);
+    } finally {
+      for (Connection connection : borrowed) {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          logger.warn("分片预编译预热归还连接失败 库id：{}", dbKey, e);
+        }
+      }
+      DBContextHolder.clearDBKey();
+    }
+  }
+
+  /**
+   * 在一个连接上预编译所有分表的语句，只记入影子缓存，不计入命中率
+   */
+  private void warmConnection(String dbKey, Connection connection, List<String> statements) {
+    for (int tbIdx = 0; tbIdx < dbRouterConfig.getTbCount(); tbIdx++) {
+      for (String statement : statements) {
+        String sql = plugin.routeSql(statement, String.format("%03d", tbIdx));
+        // 开启 cachePrepStmts 后，close 会把语句放回驱动缓存而不是真正关闭
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+          statementCacheMonitor.warm(connection, sql);
+        } catch (SQLException e) {
+          logger.warn("分片预编译预热失败 库id：{} sql：{}", dbKey, sql, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * 检查连接池占满时的服务端预编译语句数是否超过 MySQL 的 max_prepared_stmt_count
+   * 该上限是实例全局的，这里只能检查本连接池，同一实例上的其他分库、应用实例需要配置 stmtCache.maxServerStmts 分摊
+   */
+  private void checkServerLimit(String dbKey, Connection connection) {
+    long required = (long) statementCacheMonitor.getCacheSize() * poolMaxSize;
+    try (PreparedStatement preparedStatement = connection.prepareStatement("select @@global.max_prepared_stmt_count");
+         ResultSet resultSet = preparedStatement.executeQuery()) {
+      if (resultSet.next() && required > resultSet.getLong(1)) {
+        logger.warn("分库 {} 连接池最多需要 {} 条服务端预编译语句，超过 max_prepared_stmt_count：{}，请调小 stmtCache.maxServerStmts",
+            dbKey, required, resultSet.getLong(1));
+      }
+    } catch (SQLException e) {
+      // 非 MySQL 数据库没有该变量
+      logger.debug("读取 max_prepared_stmt_count 失败 库id：{}", dbKey, e);
+    }
+  }
+
+}
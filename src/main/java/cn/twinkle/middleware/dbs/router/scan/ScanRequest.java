@@ -0,0 +1,102 @@
+package cn.twinkle.middleware.dbs.router.scan;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 全分片扫描参数
+ * 描述要扫描的逻辑表、键集分页字段，以及并行度、缓冲区等流控参数
+ */
+public class ScanRequest {
+  /**
+   * 逻辑表名，实际扫描的表为 逻辑表名_001 这种带后缀的分表
+   */
+  private String tableName;
+  /**
+   * 键集分页字段，需要在每张分表内唯一且有索引，一般是自增主键
+   */
+  private String keyColumn;
+  /**
+   * 查询列，默认全部列
+   */
+  private String columns = "*";
+  /**
+   * 每页行数，每一页都是一次 key > 上一页最后一个key 的查询
+   */
+  private int pageSize = 10000;
+  /**
+   * JDBC fetchSize，MySQL 下 Integer.MIN_VALUE 表示逐行流式读取，不会把整页结果读进内存
+   */
+  private int fetchSize = Integer.MIN_VALUE;
+  /**
+   * 同时扫描的分片（库+表）数量
+   */
+  private int parallelism = 1;
+  /**
+   * 生产者与消费者之间的缓冲行数，缓冲满了扫描线程会阻塞，以此实现背压
+   */
+  private int bufferSize = 1024;
+
+  public ScanRequest() {
+  }
+
+  public ScanRequest(String tableName, String keyColumn) {
+    this.tableName = tableName;
+    this.keyColumn = keyColumn;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public void setTableName(String tableName) {
+    this.tableName = tableName;
+  }
+
+  public String getKeyColumn() {
+    return keyColumn;
+  }
+
+  public void setKeyColumn(String keyColumn) {
+    this.keyColumn = keyColumn;
+  }
+
+  public String getColumns() {
+    return columns;
+  }
+
+  public void setColumns(String columns) {
+    this.columns = columns;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public int getFetchSize() {
+    return fetchSize;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+}
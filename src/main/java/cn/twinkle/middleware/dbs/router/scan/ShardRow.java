@@ -0,0 +1,45 @@
+package cn.twinkle.middleware.dbs.router.scan;
+
+import java.util.Map;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 扫描得到的一行数据，同时带上所在的库、表路由
+ */
+public class ShardRow {
+  /**
+   * 库路由，如 01
+   */
+  private final String dbKey;
+  /**
+   * 表路由，如 001
+   */
+  private final String tbKey;
+  /**
+   * 列名 -> 列值
+   */
+  private final Map<String, Object> values;
+
+  public ShardRow(String dbKey, String tbKey, Map<String, Object> values) {
+    this.dbKey = dbKey;
+    this.tbKey = tbKey;
+    this.values = values;
+  }
+
+  public String getDbKey() {
+    return dbKey;
+  }
+
+  public String getTbKey() {
+    return tbKey;
+  }
+
+  public Map<String, Object> getValues() {
+    return values;
+  }
+
+  public Object get(String column) {
+    return values.get(column);
+  }
+}
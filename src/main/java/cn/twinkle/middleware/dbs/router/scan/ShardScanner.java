@@ -0,0 +1,195 @@
+package cn.twinkle.middleware.dbs.router.scan;
+
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 全分片流式扫描，用于导出、回填等需要读取所有库所有分表的场景
+ * 1、按 (库, 表) 拆成多个分片任务，按 parallelism 并行扫描
+ * 2、每个分片内使用键集分页（key > 上一页最后一个key），每页再通过 fetchSize 流式读取，内存占用与表大小无关
+ * 3、扫描线程把每一行放入有界队列，由调用线程逐行交给消费者；消费者处理慢时队列写满，扫描线程阻塞，即背压
+ * 分库通过 DBContextHolder 设置库路由，交给 DynamicDataSource 切换数据源；分表直接拼接表名后缀，不经过 DynamicMybatisPlugin
+ */
+public class ShardScanner {
+
+  private Logger logger = LoggerFactory.getLogger(ShardScanner.class);
+
+  /**
+   * 分片扫描结束标记
+   */
+  private static final Object SHARD_DONE = new Object();
+
+  private DataSource dataSource;
+
+  private IDBRouterStrategy dbRouterStrategy;
+
+  public ShardScanner(DataSource dataSource, IDBRouterStrategy dbRouterStrategy) {
+    this.dataSource = dataSource;
+    this.dbRouterStrategy = dbRouterStrategy;
+  }
+
+  /**
+   * 扫描所有库的所有分表，并把每一行交给消费者
+   * 消费者在调用线程中串行执行，不需要考虑线程安全；消费者抛出异常会中止整个扫描
+   * @param request 扫描参数
+   * @param rowHandler 行消费者
+   * @return 扫描总行数
+   */
+  public long scan(ScanRequest request, Consumer<ShardRow> rowHandler) {
+    if (StringUtils.isBlank(request.getTableName()) || StringUtils.isBlank(request.getKeyColumn())) {
+      throw new RuntimeException("scan tableName or keyColumn is null！");
+    }
+
+    // 所有 (库, 表) 分片由路由策略给出；分表数不固定的策略（如按月分表）不支持全分片扫描
+    List<ShardRoute> shards;
+    try {
+      shards = dbRouterStrategy.allRoutes();
+    } catch (UnsupportedOperationException e) {
+      throw new RuntimeException("scan not support router strategy：" + dbRouterStrategy.getClass().getName(), e);
+    }
+
+    int parallelism = Math.max(1, Math.min(request.getParallelism(), shards.size()));
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(Math.max(1, request.getBufferSize()));
+    AtomicInteger threadIdx = new AtomicInteger();
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread thread = new Thread(r, "db-router-scan-" + threadIdx.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    long rows = 0;
+    try {
+      for (ShardRoute shard : shards) {
+        executorService.execute(() -> scanShard(shard.getDbKey(), shard.getTbKey(), request, queue));
+      }
+      executorService.shutdown();
+
+      // 调用线程消费，直到所有分片都扫描结束
+      int finished = 0;
+      while (finished < shards.size()) {
+        Object item = queue.take();
+        if (item == SHARD_DONE) {
+          finished++;
+        } else if (item instanceof ShardFailure) {
+          ShardFailure failure = (ShardFailure) item;
+          throw new RuntimeException("分片扫描失败 库id：" + failure.dbKey + " 表id：" + failure.tbKey, failure.cause);
+        } else {
+          rowHandler.accept((ShardRow) item);
+          rows++;
+        }
+      }
+      logger.info("分片扫描完成 表：{} 分片数：{} 行数：{}", request.getTableName(), shards.size(), rows);
+      return rows;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("分片扫描被中断 表：" + request.getTableName(), e);
+    } finally {
+      // 正常结束时线程池已空闲；异常结束时中断阻塞在队列上的扫描线程，释放连接
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * 扫描单个分片，按键集分页逐页读取
+   */
+  private void scanShard(String dbKey, String tbKey, ScanRequest request, BlockingQueue<Object> queue) {
+    // 在扫描线程中设置库路由，DynamicDataSource 据此获取对应分库的连接
+    DBContextHolder.setDBKey(dbKey);
+    String table = request.getTableName() + "_" + tbKey;
+    try (Connection connection = dataSource.getConnection()) {
+      Object lastKey = null;
+      while (true) {
+        int pageRows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(pageSql(table, request, null != lastKey),
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+          statement.setFetchSize(request.getFetchSize());
+          if (null != lastKey) {
+            statement.setObject(1, lastKey);
+          }
+          try (ResultSet resultSet = statement.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            while (resultSet.next()) {
+              Map<String, Object> values = new LinkedHashMap<>(columnCount * 2);
+              for (int i = 1; i <= columnCount; i++) {
+                values.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+              }
+              lastKey = resultSet.getObject(request.getKeyColumn());
+              // 队列满时阻塞，背压到数据库读取
+              queue.put(new ShardRow(dbKey, tbKey, values));
+              pageRows++;
+            }
+          }
+        }
+        // 不足一页，说明已经读到最后
+        if (pageRows < request.getPageSize()) {
+          break;
+        }
+      }
+      queue.put(SHARD_DONE);
+    } catch (InterruptedException e) {
+      // 扫描被中止，直接退出
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      // Error 也需要通知调用线程，否则调用线程会一直等待该分片结束
+      logger.error("分片扫描失败 库id：{} 表：{}", dbKey, table, e);
+      try {
+        queue.put(new ShardFailure(dbKey, tbKey, e));
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    } finally {
+      DBContextHolder.clearDBKey();
+    }
+  }
+
+  /**
+   * 键集分页sql：select 列 from 表 [where key > ?] order by key limit 页大小
+   */
+  private String pageSql(String table, ScanRequest request, boolean hasLastKey) {
+    StringBuilder sql = new StringBuilder("SELECT ").append(request.getColumns())
+        .append(" FROM ").append(table);
+    if (hasLastKey) {
+      sql.append(" WHERE ").append(request.getKeyColumn()).append(" > ?");
+    }
+    sql.append(" ORDER BY ").append(request.getKeyColumn())
+        .append(" LIMIT ").append(request.getPageSize());
+    return sql.toString();
+  }
+
+  /**
+   * 分片扫描失败信息，通过队列传递给调用线程
+   */
+  private static class ShardFailure {
+    private final String dbKey;
+    private final String tbKey;
+    private final Throwable cause;
+
+    private ShardFailure(String dbKey, String tbKey, Throwable cause) {
+      this.dbKey = dbKey;
+      this.tbKey = tbKey;
+      this.cause = cause;
+    }
+  }
+
+}
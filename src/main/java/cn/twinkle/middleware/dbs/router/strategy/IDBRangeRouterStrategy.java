@@ -0,0 +1,47 @@
+package cn.twinkle.middleware.dbs.router.strategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 范围路由策略接口
+ * 对于按时间等有序字段分表的数据，范围查询只需要访问与区间有交集的分表
+ */
+public interface IDBRangeRouterStrategy extends IDBRouterStrategy {
+
+  /**
+   * 根据区间计算需要访问的所有分片
+   * @param startAttr 区间开始（包含）
+   * @param endAttr 区间结束（包含）
+   * @return 按区间顺序排列的分片，区间为空时返回空列表
+   */
+  List<ShardRoute> doRangeRouter(String startAttr, String endAttr);
+
+  /**
+   * 分库按 dbKeyAttr、分表按区间路由，分库与 doRouter(dbKeyAttr, tbKeyAttr) 一致
+   * 默认取 doRangeRouter(startAttr, endAttr) 的分表，库统一替换为 doRouter(dbKeyAttr, startAttr) 的库路由
+   * @param dbKeyAttr 分库字段
+   * @param startAttr 区间开始（包含）
+   * @param endAttr 区间结束（包含）
+   * @return 按区间顺序排列的分片
+   */
+  default List<ShardRoute> doRangeRouter(String dbKeyAttr, String startAttr, String endAttr) {
+    String dbKey;
+    try {
+      doRouter(dbKeyAttr, startAttr);
+      dbKey = getDBKey();
+    } finally {
+      clear();
+    }
+    Set<ShardRoute> routes = new LinkedHashSet<>();
+    for (ShardRoute route : doRangeRouter(startAttr, endAttr)) {
+      routes.add(new ShardRoute(dbKey, route.getTbKey()));
+    }
+    return new ArrayList<>(routes);
+  }
+
+}
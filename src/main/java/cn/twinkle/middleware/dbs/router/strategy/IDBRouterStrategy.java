@@ -1,5 +1,9 @@
 package cn.twinkle.middleware.dbs.router.strategy;
 
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @Author: zhencym
  * @DATE: 2023/4/23
@@ -12,6 +16,19 @@ public interface IDBRouterStrategy {
    */
   void doRouter(String dbKeyAttr);
 
+  /**
+   * 分库、分表分别按不同字段路由
+   * 默认由单字段路由组合：表路由取 doRouter(tbKeyAttr) 的结果，库路由取 doRouter(dbKeyAttr) 的结果
+   * @param dbKeyAttr 分库字段
+   * @param tbKeyAttr 分表字段
+   */
+  default void doRouter(String dbKeyAttr, String tbKeyAttr) {
+    doRouter(tbKeyAttr);
+    String tbKey = getTBKey();
+    doRouter(dbKeyAttr);
+    DBContextHolder.setTBKey(tbKey);
+  }
+
   /**
    * 手动设置分表路由
    * @param dbIdx 路由库，需要在配置范围内
@@ -46,6 +63,21 @@ public interface IDBRouterStrategy {
    */
   int tbCount();
 
+  /**
+   * 所有分片，用于全分片扫描等需要遍历所有库表的场景
+   * 默认库从1开始（%02d），表从0开始（%03d），与 DBRouterStrategyHashCode 的路由结果一致；分表规则不同的策略需要覆盖
+   * @return 按库、表顺序排列的分片
+   */
+  default List<ShardRoute> allRoutes() {
+    List<ShardRoute> routes = new ArrayList<>(dbCount() * tbCount());
+    for (int dbIdx = 1; dbIdx <= dbCount(); dbIdx++) {
+      for (int tbIdx = 0; tbIdx < tbCount(); tbIdx++) {
+        routes.add(new ShardRoute(String.format("%02d", dbIdx), String.format("%03d", tbIdx)));
+      }
+    }
+    return routes;
+  }
+
   /**
    * 清除路由
    */
@@ -0,0 +1,58 @@
+package cn.twinkle.middleware.dbs.router.strategy;
+
+import java.util.Objects;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 一次路由结果：库路由 + 表路由
+ * 用于范围路由、拆分查询等一次调用需要访问多个分片的场景
+ */
+public class ShardRoute {
+  /**
+   * 库路由，如 01；为 null 时使用默认数据源
+   */
+  private final String dbKey;
+  /**
+   * 表路由，如 001；只路由库时为 null
+   */
+  private final String tbKey;
+
+  public ShardRoute(String dbKey, String tbKey) {
+    this.dbKey = dbKey;
+    this.tbKey = tbKey;
+  }
+
+  public String getDbKey() {
+    return dbKey;
+  }
+
+  public String getTbKey() {
+    return tbKey;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ShardRoute)) {
+      return false;
+    }
+    ShardRoute that = (ShardRoute) o;
+    return Objects.equals(dbKey, that.dbKey) && Objects.equals(tbKey, that.tbKey);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(dbKey, tbKey);
+  }
+
+  @Override
+  public String toString() {
+    if (null == dbKey) {
+      return "default";
+    }
+    return null == tbKey ? "db" + dbKey : "db" + dbKey + "_" + tbKey;
+  }
+}
@@ -49,6 +49,44 @@ public class DBRouterStrategyHashCode implements IDBRouterStrategy {
     logger.debug("数据库路由 dbIdx：{} tbIdx：{}",  dbIdx, tbIdx);
   }
 
+  /**
+   * 分库、分表分别按不同字段路由
+   * 两个字段各自按 doRouter(String) 的散列方式计算，分库取 dbKeyAttr 的库序号，分表取 tbKeyAttr 的表序号
+   * 两个字段值相同时，结果与 doRouter(String) 完全一致
+   * @param dbKeyAttr 分库字段
+   * @param tbKeyAttr 分表字段
+   */
+  @Override
+  public void doRouter(String dbKeyAttr, String tbKeyAttr) {
+    int size = dbRouterConfig.getDbCount() * dbRouterConfig.getTbCount();
+
+    int dbIdx = dbIdx(dbKeyAttr, dbRouterConfig.getDbCount(), dbRouterConfig.getTbCount());
+    int tbIdx = hashIdx(tbKeyAttr, size) % dbRouterConfig.getTbCount();
+
+    DBContextHolder.setDBKey(String.format("%02d", dbIdx));
+    DBContextHolder.setTBKey(String.format("%03d", tbIdx));
+    logger.debug("数据库路由 dbIdx：{} tbIdx：{}",  dbIdx, tbIdx);
+  }
+
+  /**
+   * 按哈希路由计算库序号（从1开始），与 doRouter(String) 的库路由一致
+   * 其他策略按字段分库时也使用该方法，同一个字段值在不同策略下落在同一个库
+   * @param keyAttr 分库字段
+   * @param dbCount 分库数
+   * @param tbCount 每个库的分表数
+   * @return 库序号
+   */
+  public static int dbIdx(String keyAttr, int dbCount, int tbCount) {
+    return hashIdx(keyAttr, dbCount * tbCount) / tbCount + 1;
+  }
+
+  /**
+   * 扰动函数散列，结果在 [0, size) 之间
+   */
+  private static int hashIdx(String keyAttr, int size) {
+    return (size-1) & (keyAttr.hashCode() ^ (keyAttr.hashCode() >>> 16));
+  }
+
   @Override
   public void setDBKey(int dbIdx) {
 //    DBContextHolder.setDBKey(String.format("%02d", dbIdx));
@@ -0,0 +1,213 @@
+package cn.twinkle.middleware.dbs.router.strategy.impl;
+
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRangeRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 按月分表的时间路由策略
+ * 1、表路由为 yyyyMM，经过 DynamicMybatisPlugin 后表名变成 表名_202610
+ * 2、只按时间路由时，库路由按月份轮转：(年 * 12 + 月 - 1) % 分库数 + 1，相邻月份落在不同库，范围查询可以分摊到多个库；
+ *    代价是同一个月的数据都在一个库，当月的写入全部集中在这个库，其他库只承担历史查询。
+ *    多个分库需要分摊写入时，使用复合路由：@DBRouter(dbKey = "userId", tbKey = "createTime") 按用户等字段散列分库、按月分表，
+ *    范围查询配合 @DBRouterRange(dbKey = "userId")，同时配置 timeTablesAllDb=true 在所有库预建月表
+ * 3、范围路由返回区间内每个月对应的分片，只访问与区间有交集的分表
+ *
+ * 支持的时间格式：yyyyMM、yyyyMMdd、毫秒时间戳、以 yyyy-MM 或 yyyy/MM 开头的字符串（如 LocalDate、LocalDateTime 的 toString）
+ */
+public class DBRouterStrategyTimeRange implements IDBRangeRouterStrategy {
+
+  private Logger logger = LoggerFactory.getLogger(DBRouterStrategyTimeRange.class);
+
+  /**
+   * 一次范围查询最多允许访问的月份数，防止区间写错扫全部历史表
+   */
+  private static final int MAX_RANGE_MONTHS = 120;
+
+  private DBRouterConfig dbRouterConfig;
+
+  /**
+   * 多个分库只按时间路由时，只提示一次写入集中的问题
+   */
+  private final AtomicBoolean hotSpotWarned = new AtomicBoolean();
+
+  public DBRouterStrategyTimeRange(DBRouterConfig dbRouterConfig) {
+    this.dbRouterConfig = dbRouterConfig;
+  }
+
+  /**
+   * 只按时间路由，库按月份轮转，同一个月的写入都在一个库
+   */
+  @Override
+  public void doRouter(String dbKeyAttr) {
+    if (dbRouterConfig.getDbCount() > 1 && hotSpotWarned.compareAndSet(false, true)) {
+      logger.warn("按月分表只按时间路由时，当月写入都集中在一个库，多个分库需要分摊写入时请使用 dbKey 复合路由");
+    }
+    ShardRoute route = route(parse(dbKeyAttr));
+    DBContextHolder.setDBKey(route.getDbKey());
+    DBContextHolder.setTBKey(route.getTbKey());
+    logger.debug("数据库路由 dbIdx：{} tbIdx：{}", route.getDbKey(), route.getTbKey());
+  }
+
+  /**
+   * 分库按 dbKeyAttr 散列，分表按 tbKeyAttr 的月份
+   * 如按 tenantId 分库、按 createTime 分表，同一租户的数据都在同一个库，
+   * 分库与 DBRouterStrategyHashCode 完全一致，该租户按哈希分表的数据也在这个库
+   * @param dbKeyAttr 分库字段
+   * @param tbKeyAttr 分表字段，时间
+   */
+  @Override
+  public void doRouter(String dbKeyAttr, String tbKeyAttr) {
+    int dbIdx = DBRouterStrategyHashCode.dbIdx(dbKeyAttr, dbRouterConfig.getDbCount(), dbRouterConfig.getTbCount());
+    String tbKey = route(parse(tbKeyAttr)).getTbKey();
+    DBContextHolder.setDBKey(String.format("%02d", dbIdx));
+    DBContextHolder.setTBKey(tbKey);
+    logger.debug("数据库路由 dbIdx：{} tbIdx：{}", dbIdx, tbKey);
+  }
+
+  @Override
+  public List<ShardRoute> doRangeRouter(String startAttr, String endAttr) {
+    YearMonth start = parse(startAttr);
+    YearMonth end = parse(endAttr);
+    List<ShardRoute> routes = new ArrayList<>();
+    for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+      if (routes.size() >= MAX_RANGE_MONTHS) {
+        throw new RuntimeException("range router months exceed " + MAX_RANGE_MONTHS + "：" + startAttr + " ~ " + endAttr);
+      }
+      routes.add(route(month));
+    }
+    return routes;
+  }
+
+  /**
+   * 复合范围路由：库按 dbKeyAttr 散列（与 doRouter(dbKeyAttr, tbKeyAttr) 一致），表为区间内的每个月
+   */
+  @Override
+  public List<ShardRoute> doRangeRouter(String dbKeyAttr, String startAttr, String endAttr) {
+    String dbKey = String.format("%02d",
+        DBRouterStrategyHashCode.dbIdx(dbKeyAttr, dbRouterConfig.getDbCount(), dbRouterConfig.getTbCount()));
+    List<ShardRoute> routes = new ArrayList<>();
+    for (ShardRoute route : doRangeRouter(startAttr, endAttr)) {
+      routes.add(new ShardRoute(dbKey, route.getTbKey()));
+    }
+    return routes;
+  }
+
+  /**
+   * 某个月份对应的分片
+   */
+  public ShardRoute route(YearMonth month) {
+    int monthIdx = month.getYear() * 12 + month.getMonthValue() - 1;
+    int dbIdx = monthIdx % dbRouterConfig.getDbCount() + 1;
+    return new ShardRoute(String.format("%02d", dbIdx),
+        String.format("%04d%02d", month.getYear(), month.getMonthValue()));
+  }
+
+  /**
+   * 解析路由字段中的年月
+   */
+  public YearMonth parse(String attr) {
+    if (null == attr || attr.trim().isEmpty()) {
+      throw new RuntimeException("time router attr is null！");
+    }
+    String value = attr.trim();
+    try {
+      if (isDigits(value)) {
+        switch (value.length()) {
+          case 6:
+            return YearMonth.of(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)));
+          case 8:
+            return YearMonth.of(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)));
+          default:
+            return YearMonth.from(Instant.ofEpochMilli(Long.parseLong(value)).atZone(ZoneId.systemDefault()));
+        }
+      }
+      if (value.length() >= 7 && (value.charAt(4) == '-' || value.charAt(4) == '/')) {
+        return YearMonth.of(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(5, 7)));
+      }
+    } catch (RuntimeException e) {
+      throw new RuntimeException("time router attr illegal：" + attr, e);
+    }
+    throw new RuntimeException("time router attr illegal：" + attr);
+  }
+
+  private boolean isDigits(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isDigit(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void setDBKey(int dbIdx) {
+    // 参数检验
+    if (dbIdx > 0 && dbIdx <= this.dbCount()) {
+      DBContextHolder.setDBKey(String.format("%02d", dbIdx));
+    } else { //默认数据库1
+      DBContextHolder.setDBKey(String.format("%02d", 1));
+    }
+  }
+
+  /**
+   * 手动设置分表路由
+   * @param tbIdx 年月，如 202610
+   */
+  @Override
+  public void setTBKey(int tbIdx) {
+    int month = tbIdx % 100;
+    if (month < 1 || month > 12) {
+      throw new RuntimeException("time router tbIdx illegal：" + tbIdx);
+    }
+    DBContextHolder.setTBKey(String.valueOf(tbIdx));
+  }
+
+  @Override
+  public String getDBKey() {
+    return DBContextHolder.getDBKey();
+  }
+
+  @Override
+  public String getTBKey() {
+    return DBContextHolder.getTBKey();
+  }
+
+  @Override
+  public int dbCount() {
+    return dbRouterConfig.getDbCount();
+  }
+
+  /**
+   * 按月分表，分表数量不固定，这里返回每年的分表数
+   */
+  @Override
+  public int tbCount() {
+    return 12;
+  }
+
+  /**
+   * 按月分表的分表数不固定，没有完整的分片列表，只能通过 doRangeRouter 按区间获取
+   */
+  @Override
+  public List<ShardRoute> allRoutes() {
+    throw new UnsupportedOperationException("time router tables are unbounded, use doRangeRouter");
+  }
+
+  @Override
+  public void clear() {
+    DBContextHolder.clearDBKey();
+    DBContextHolder.clearTBKey();
+  }
+}
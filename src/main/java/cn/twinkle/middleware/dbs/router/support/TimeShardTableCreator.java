@@ -0,0 +1,134 @@
+package cn.twinkle.middleware.dbs.router.support;
+
+import cn.twinkle.middleware.dbs.router.DBContextHolder;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 按月分表的预建表工具
+ * 以每个分库中不带后缀的逻辑表为模板，提前创建未来几个月的分表：CREATE TABLE IF NOT EXISTS 表名_202611 LIKE 表名
+ * 默认只在该月份轮转到的库中建表；使用复合路由（按其他字段分库、按时间分表）时，每个月的分表在所有库都可能写入，需要开启 allDatabases
+ * 容器启动时会为配置的表执行一次，之后每天执行一次，长期运行的实例跨月后也不会写入不存在的分表
+ * 业务也可以自行调用 createAhead
+ */
+public class TimeShardTableCreator implements InitializingBean, DisposableBean {
+
+  private Logger logger = LoggerFactory.getLogger(TimeShardTableCreator.class);
+
+  private DataSource dataSource;
+
+  private DBRouterStrategyTimeRange timeRouterStrategy;
+
+  /**
+   * 需要预建的逻辑表
+   */
+  private List<String> tables;
+
+  /**
+   * 预建的月份数（包含当月）
+   */
+  private int monthsAhead;
+
+  /**
+   * 是否在所有分库中建表，复合路由时开启
+   */
+  private boolean allDatabases;
+
+  /**
+   * 每日预建任务
+   */
+  private ScheduledExecutorService scheduler;
+
+  public TimeShardTableCreator(DataSource dataSource, DBRouterStrategyTimeRange timeRouterStrategy,
+                               List<String> tables, int monthsAhead, boolean allDatabases) {
+    this.dataSource = dataSource;
+    this.timeRouterStrategy = timeRouterStrategy;
+    this.tables = tables;
+    this.monthsAhead = monthsAhead;
+    this.allDatabases = allDatabases;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    createAll();
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "db-router-time-table-creator");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        createAll();
+      } catch (Exception e) {
+        // 下次执行时重试，不能让异常终止定时任务
+        logger.error("按月分表预建失败 表：{}", tables, e);
+      }
+    }, 1, 1, TimeUnit.DAYS);
+  }
+
+  @Override
+  public void destroy() {
+    if (null != scheduler) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private void createAll() throws SQLException {
+    for (String table : tables) {
+      createAhead(table, monthsAhead);
+    }
+  }
+
+  /**
+   * 从当月开始，创建未来 months 个月的分表
+   * @param logicTable 逻辑表名，同时也是建表模板
+   * @param months 月份数
+   * @return 创建的分表（已存在的也会返回）
+   */
+  public List<String> createAhead(String logicTable, int months) throws SQLException {
+    List<String> created = new ArrayList<>();
+    YearMonth month = YearMonth.now();
+    for (int i = 0; i < months; i++, month = month.plusMonths(1)) {
+      ShardRoute route = timeRouterStrategy.route(month);
+      String table = logicTable + "_" + route.getTbKey();
+      List<String> dbKeys = new ArrayList<>();
+      if (allDatabases) {
+        for (int dbIdx = 1; dbIdx <= timeRouterStrategy.dbCount(); dbIdx++) {
+          dbKeys.add(String.format("%02d", dbIdx));
+        }
+      } else {
+        dbKeys.add(route.getDbKey());
+      }
+      for (String dbKey : dbKeys) {
+        // 设置库路由，DynamicDataSource 据此获取对应分库的连接
+        DBContextHolder.setDBKey(dbKey);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+          statement.execute("CREATE TABLE IF NOT EXISTS " + table + " LIKE " + logicTable);
+        } finally {
+          DBContextHolder.clearDBKey();
+        }
+        created.add("db" + dbKey + "." + table);
+      }
+    }
+    logger.info("按月分表预建完成：{}", created);
+    return created;
+  }
+
+}
@@ -1,7 +1,31 @@
 package cn.twinkle.middleware.test;
 
+import cn.twinkle.middleware.dbs.router.DBBroadcastException;
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.DBRouterExecutor;
+import cn.twinkle.middleware.dbs.router.analyzer.DistributionReport;
+import cn.twinkle.middleware.dbs.router.analyzer.RouterDistributionAnalyzer;
 import cn.twinkle.middleware.dbs.router.annotation.DBRouter;
+import cn.twinkle.middleware.dbs.router.dynamic.DynamicMybatisPlugin;
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementCacheMonitor;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.ShardRoute;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import java.io.BufferedWriter;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -49,6 +73,231 @@ public class ApiTest {
 
     }
 
-}
+    @Test
+    public void test_composite_router() {
+        IDBRouterStrategy strategy = new DBRouterStrategyHashCode(new DBRouterConfig(2, 4, null));
+
+        strategy.doRouter("fustackgiii");
+        String dbKey = strategy.getDBKey();
+        String tbKey = strategy.getTBKey();
+        strategy.doRouter("fustackgiii", "fustackgiii");
+        Assert.assertEquals(dbKey, strategy.getDBKey());
+        Assert.assertEquals(tbKey, strategy.getTBKey());
+
+        // 同一租户，不同用户都在同一个库
+        strategy.doRouter("tenant01", "user01");
+        String tenantDbKey = strategy.getDBKey();
+        for (int i = 0; i < 100; i++) {
+            strategy.doRouter("tenant01", "user" + i);
+            Assert.assertEquals(tenantDbKey, strategy.getDBKey());
+        }
+        strategy.clear();
+    }
+
+    @Test
+    public void test_composite_time_router_colocation() {
+        DBRouterConfig config = new DBRouterConfig(2, 4, null);
+        IDBRouterStrategy hash = new DBRouterStrategyHashCode(config);
+        DBRouterStrategyTimeRange time = new DBRouterStrategyTimeRange(config);
+
+        // 同一租户按哈希分表、按时间分表的数据在同一个库
+        for (int i = 0; i < 1000; i++) {
+            String tenantId = "tenant" + i;
+            hash.doRouter(tenantId);
+            String dbKey = hash.getDBKey();
+            time.doRouter(tenantId, "202610");
+            Assert.assertEquals(dbKey, time.getDBKey());
+            Assert.assertEquals("202610", time.getTBKey());
+            for (ShardRoute route : time.doRangeRouter(tenantId, "202611", "202702")) {
+                Assert.assertEquals(dbKey, route.getDbKey());
+            }
+        }
+        time.clear();
+
+        // 自定义策略的默认复合路由：库取分库字段、表取分表字段
+        IDBRouterStrategy custom = new IDBRouterStrategy() {
+            @Override public void doRouter(String dbKeyAttr) { hash.doRouter(dbKeyAttr); }
+            @Override public void setDBKey(int dbIdx) { hash.setDBKey(dbIdx); }
+            @Override public void setTBKey(int tbIdx) { hash.setTBKey(tbIdx); }
+            @Override public String getDBKey() { return hash.getDBKey(); }
+            @Override public String getTBKey() { return hash.getTBKey(); }
+            @Override public int dbCount() { return hash.dbCount(); }
+            @Override public int tbCount() { return hash.tbCount(); }
+            @Override public void clear() { hash.clear(); }
+        };
+        custom.doRouter("tenant01", "user01");
+        hash.doRouter("tenant01", "user01");
+        Assert.assertEquals(hash.getDBKey(), custom.getDBKey());
+        Assert.assertEquals(hash.getTBKey(), custom.getTBKey());
+        hash.clear();
+    }
+
+    @Test
+    public void test_time_range_router() {
+        DBRouterStrategyTimeRange strategy = new DBRouterStrategyTimeRange(new DBRouterConfig(2, 4, null));
+
+        strategy.doRouter("2026-10-19 12:00:00");
+        Assert.assertEquals("202610", strategy.getTBKey());
+        strategy.clear();
+
+        List<ShardRoute> routes = strategy.doRangeRouter("20261120", "2027-02");
+        System.out.println(routes);
+        Assert.assertEquals(4, routes.size());
+        Assert.assertEquals("202611", routes.get(0).getTbKey());
+        Assert.assertEquals("202702", routes.get(3).getTbKey());
+        Assert.assertNotEquals(routes.get(0).getDbKey(), routes.get(1).getDbKey());
+    }
+
+    @Test
+    public void test_router_distribution() throws Exception {
+        Path keyFile = Files.createTempFile("router-keys", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(keyFile)) {
+            for (int i = 0; i < 100000; i++) {
+                writer.write("user" + i);
+                writer.newLine();
+            }
+        }
+
+        IDBRouterStrategy source = new DBRouterStrategyHashCode(new DBRouterConfig(2, 4, null));
+        IDBRouterStrategy target = new DBRouterStrategyHashCode(new DBRouterConfig(4, 4, null));
+        DistributionReport report = new RouterDistributionAnalyzer(source, target, 4).analyze(keyFile);
+        Files.delete(keyFile);
+
+        System.out.println(report);
+        Assert.assertEquals(100000, report.getTotalKeys());
+        Assert.assertEquals(100000, report.getSource().total());
+        Assert.assertEquals(100000, report.getTarget().total());
+    }
+
+    @Test
+    public void test_route_sql() {
+        DBRouterConfig config = new DBRouterConfig(2, 4, null);
+        config.setBroadcastTables(new HashSet<>(Collections.singletonList("region")));
+        DynamicMybatisPlugin plugin = new DynamicMybatisPlugin(config);
+
+        Assert.assertEquals("select * from user_001 where id = ?", plugin.routeSql("select * from user where id = ?", "001"));
+        Assert.assertEquals("INSERT INTO user_002 (id) values (?)", plugin.routeSql("INSERT INTO user (id) values (?)", "002"));
+        Assert.assertEquals("update  user_003 set name = ?", plugin.routeSql("update  user set name = ?", "003"));
+        // 每个表按自己的表名加后缀，广播表不加后缀
+        Assert.assertEquals("select * from user_001 where region_id in (select id from region where code = ?)"
+                + " and id in (select user_id from user_order_001)",
+            plugin.routeSql("select * from user where region_id in (select id from region where code = ?)"
+                + " and id in (select user_id from user_order)", "001"));
+    }
+
+    @Test
+    public void test_broadcast_join_on_shard() throws Exception {
+        DBRouterConfig config = new DBRouterConfig(2, 4, null);
+        config.setBroadcastTables(new HashSet<>(Collections.singletonList("t_region")));
+        DynamicMybatisPlugin plugin = new DynamicMybatisPlugin(config);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:broadcast_db01;MODE=MySQL", "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table t_user_001 (id bigint primary key, region_id bigint)");
+            statement.execute("create table t_region (id bigint primary key, name varchar(32))");
+            statement.execute("insert into t_user_001 values (1, 10), (2, 20)");
+            statement.execute("insert into t_region values (10, 'hz'), (20, 'sh')");
+
+            String sql = plugin.routeSql("select u.id, r.name from t_user u join t_region r on u.region_id = r.id"
+                + " where u.region_id in (select id from t_region where name = 'sh')", "001");
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                Assert.assertTrue(resultSet.next());
+                Assert.assertEquals(2, resultSet.getLong(1));
+                Assert.assertEquals("sh", resultSet.getString(2));
+                Assert.assertFalse(resultSet.next());
+            }
+        }
+    }
+
+    @Test
+    public void test_broadcast_exception() {
+        DBRouterExecutor executor = new DBRouterExecutor(2);
+        List<ShardRoute> routes = Arrays.asList(new ShardRoute("01", null), new ShardRoute("02", null),
+            new ShardRoute("03", null));
+        try {
+            executor.broadcast(routes, route -> {
+                if ("02".equals(route.getDbKey())) {
+                    throw new IllegalStateException("db02 down");
+                }
+                return 1;
+            });
+            Assert.fail("broadcast should fail on db02");
+        } catch (DBBroadcastException e) {
+            Assert.assertEquals(Arrays.asList(routes.get(0), routes.get(2)), e.getSucceeded());
+            Assert.assertEquals(Collections.singleton(routes.get(1)), e.getFailures().keySet());
+            Assert.assertEquals("db02 down", e.getFailures().get(routes.get(1)).getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_merge_results() {
+        Assert.assertEquals(Arrays.asList(1, 2, 3),
+            DBRouterExecutor.merge(Arrays.asList(Arrays.asList(1, 2), null, Collections.singletonList(3)), List.class));
+        Assert.assertEquals(6, DBRouterExecutor.merge(Arrays.asList(1, 2, 3), int.class));
+
+        Map<String, Integer> shard1 = Collections.singletonMap("a", 1);
+        Map<String, Integer> shard2 = Collections.singletonMap("b", 2);
+        Map<?, ?> map = (Map<?, ?>) DBRouterExecutor.merge(Arrays.asList(shard1, shard2), Map.class);
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, map.get("b"));
 
+        String[] array = (String[]) DBRouterExecutor.merge(
+            Arrays.asList(new String[]{"a"}, new String[]{"b", "c"}), String[].class);
+        Assert.assertArrayEquals(new String[]{"a", "b", "c"}, array);
+        long[] longs = (long[]) DBRouterExecutor.merge(Arrays.asList(new long[]{1}, new long[]{2}), long[].class);
+        Assert.assertArrayEquals(new long[]{1, 2}, longs);
 
+        // 单个分片直接返回，多个分片无法合并时抛出异常
+        Assert.assertEquals("only", DBRouterExecutor.merge(Collections.singletonList("only"), String.class));
+        try {
+            DBRouterExecutor.merge(Arrays.asList("a", "b"), String.class);
+            Assert.fail("merge should reject multiple single results");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("can not merge"));
+        }
+    }
+
+    @Test
+    public void test_statement_cache_monitor() throws Exception {
+        ShardStatementCacheMonitor monitor = new ShardStatementCacheMonitor(2, 20);
+        try (Connection first = DriverManager.getConnection("jdbc:h2:mem:stmt_cache_1", "sa", "");
+             Connection second = DriverManager.getConnection("jdbc:h2:mem:stmt_cache_2", "sa", "")) {
+            // 每个连接一份缓存：第一次未命中，之后命中；其他连接上同样的 sql 未命中
+            Assert.assertFalse(monitor.record("01", first, "select 1"));
+            Assert.assertTrue(monitor.record("01", first, "select 1"));
+            Assert.assertFalse(monitor.record("01", second, "select 1"));
+
+            // LRU：访问 select 1 后再放入两条，最久未使用的 select 2 被淘汰
+            Assert.assertFalse(monitor.record("01", first, "select 2"));
+            Assert.assertTrue(monitor.record("01", first, "select 1"));
+            Assert.assertFalse(monitor.record("01", first, "select 3"));
+            Assert.assertTrue(monitor.record("01", first, "select 1"));
+            Assert.assertFalse(monitor.record("01", first, "select 2"));
+
+            // 超过 sqlLimit 的 sql 驱动不缓存，始终未命中
+            String longSql = "select 1 from dual where 1 = 1";
+            Assert.assertFalse(monitor.record("02", first, longSql));
+            Assert.assertFalse(monitor.record("02", first, longSql));
+
+            // 预热只放入缓存，不计入命中率
+            monitor.warm(second, "select 4");
+            Assert.assertTrue(monitor.record(null, second, "select 4"));
+
+            Map<String, long[]> snapshot = monitor.snapshot();
+            Assert.assertArrayEquals(new long[]{3, 5}, snapshot.get("db01"));
+            Assert.assertArrayEquals(new long[]{0, 2}, snapshot.get("db02"));
+            Assert.assertArrayEquals(new long[]{1, 0}, snapshot.get("default"));
+            Assert.assertEquals(2, monitor.getConnectionCount());
+
+            // 连接关闭后，新连接登记时清理
+            second.close();
+            try (Connection third = DriverManager.getConnection("jdbc:h2:mem:stmt_cache_3", "sa", "")) {
+                monitor.record("01", third, "select 1");
+                Assert.assertEquals(2, monitor.getConnectionCount());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package cn.twinkle.middleware.test.bench;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 压测启动类，数据源全部由 mini-db-router 配置提供，排除 Spring Boot 默认数据源
+ */
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+public class BenchApplication {
+}
@@ -0,0 +1,61 @@
+package cn.twinkle.middleware.test.bench;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 按月分表测试订单实体
+ */
+public class BenchOrder {
+
+  private Long id;
+
+  private String orderId;
+
+  private String userId;
+
+  /**
+   * 下单时间，yyyy-MM-dd
+   */
+  private String createTime;
+
+  public BenchOrder() {
+  }
+
+  public BenchOrder(String orderId, String userId, String createTime) {
+    this.orderId = orderId;
+    this.userId = userId;
+    this.createTime = createTime;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getOrderId() {
+    return orderId;
+  }
+
+  public void setOrderId(String orderId) {
+    this.orderId = orderId;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+  public String getCreateTime() {
+    return createTime;
+  }
+
+  public void setCreateTime(String createTime) {
+    this.createTime = createTime;
+  }
+}
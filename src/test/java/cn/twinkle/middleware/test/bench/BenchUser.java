@@ -0,0 +1,47 @@
+package cn.twinkle.middleware.test.bench;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 压测用户实体
+ */
+public class BenchUser {
+
+  private Long id;
+
+  private String userId;
+
+  private String userName;
+
+  public BenchUser() {
+  }
+
+  public BenchUser(String userId, String userName) {
+    this.userId = userId;
+    this.userName = userName;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public void setUserId(String userId) {
+    this.userId = userId;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public void setUserName(String userName) {
+    this.userName = userName;
+  }
+}
@@ -0,0 +1,28 @@
+package cn.twinkle.middleware.test.bench;
+
+import java.util.List;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 批量查询条件，路由集合作为对象属性传入
+ */
+public class BenchUserQuery {
+
+  private List<String> userIds;
+
+  public BenchUserQuery() {
+  }
+
+  public BenchUserQuery(List<String> userIds) {
+    this.userIds = userIds;
+  }
+
+  public List<String> getUserIds() {
+    return userIds;
+  }
+
+  public void setUserIds(List<String> userIds) {
+    this.userIds = userIds;
+  }
+}
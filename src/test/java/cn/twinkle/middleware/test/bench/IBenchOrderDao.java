@@ -0,0 +1,49 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.annotation.DBRouter;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterRange;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import java.util.List;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 按月分表测试接口
+ * bench_order 只按时间路由，库按月份轮转；bench_user_order 按 userId 分库、按时间分表
+ */
+@Mapper
+@DBRouterStrategy(splitTable = true)
+public interface IBenchOrderDao {
+
+  @DBRouter(key = "createTime", strategy = DBRouterStrategyTimeRange.class)
+  @Insert("insert into bench_order (order_id, user_id, create_time) values (#{orderId}, #{userId}, #{createTime})")
+  void insertOrder(BenchOrder order);
+
+  @DBRouterRange(start = "startTime", end = "endTime")
+  @Select("select id, order_id as orderId, user_id as userId, create_time as createTime from bench_order "
+      + "where create_time between #{startTime} and #{endTime} order by create_time")
+  List<BenchOrder> queryOrders(@Param("startTime") String startTime, @Param("endTime") String endTime);
+
+  @DBRouter(dbKey = "userId", tbKey = "createTime", strategy = DBRouterStrategyTimeRange.class)
+  @Insert("insert into bench_user_order (order_id, user_id, create_time) values (#{orderId}, #{userId}, #{createTime})")
+  void insertUserOrder(BenchOrder order);
+
+  /**
+   * 分库、分表字段都是 @Param 参数
+   */
+  @DBRouter(dbKey = "userId", tbKey = "createTime", strategy = DBRouterStrategyTimeRange.class)
+  @Select("select count(*) from bench_user_order where user_id = #{userId} and create_time = #{createTime}")
+  int countUserOrders(@Param("userId") String userId, @Param("createTime") String createTime);
+
+  @DBRouterRange(dbKey = "userId", start = "startTime", end = "endTime")
+  @Select("select id, order_id as orderId, user_id as userId, create_time as createTime from bench_user_order "
+      + "where user_id = #{userId} and create_time between #{startTime} and #{endTime} order by create_time")
+  List<BenchOrder> queryUserOrders(@Param("userId") String userId, @Param("startTime") String startTime,
+                                   @Param("endTime") String endTime);
+
+}
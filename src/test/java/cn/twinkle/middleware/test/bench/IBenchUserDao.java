@@ -0,0 +1,57 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.annotation.DBRouter;
+import cn.twinkle.middleware.dbs.router.annotation.DBRouterStrategy;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 压测接口，分库分表都经过 DBRouterJoinPoint 与 DynamicMybatisPlugin
+ */
+@Mapper
+@DBRouterStrategy(splitTable = true)
+public interface IBenchUserDao {
+
+  @DBRouter(key = "userId")
+  @Insert("insert into bench_user (user_id, user_name) values (#{userId}, #{userName})")
+  void insertUser(BenchUser user);
+
+  @DBRouter(key = "userId")
+  @Select("select id, user_id as userId, user_name as userName from bench_user where user_id = #{userId} limit 1")
+  BenchUser queryUser(String userId);
+
+  /**
+   * 批量写入，按每个用户的 userId 拆分到各分片
+   */
+  @DBRouter(key = "userId")
+  @Insert("<script>insert into bench_user (user_id, user_name) values "
+      + "<foreach collection='list' item='user' separator=','>(#{user.userId}, #{user.userName})</foreach></script>")
+  int insertUsers(List<BenchUser> users);
+
+  @DBRouter(key = "userIds")
+  @Select("<script>select id, user_id as userId, user_name as userName from bench_user where user_id in "
+      + "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach></script>")
+  List<BenchUser> queryUsers(@Param("userIds") List<String> userIds);
+
+  @DBRouter(key = "userIds")
+  @MapKey("userId")
+  @Select("<script>select id, user_id as userId, user_name as userName from bench_user where user_id in "
+      + "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach></script>")
+  Map<String, BenchUser> queryUserMap(@Param("userIds") List<String> userIds);
+
+  /**
+   * 路由集合在入参对象的属性中
+   */
+  @DBRouter(key = "userIds")
+  @Select("<script>select id, user_id as userId, user_name as userName from bench_user where user_id in "
+      + "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach></script>")
+  List<BenchUser> queryUsersByQuery(BenchUserQuery query);
+
+}
@@ -0,0 +1,61 @@
+package cn.twinkle.middleware.test.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 压测路由键生成器，支持均匀分布与 zipfian 分布
+ * zipfian 分布下第 i 个键的概率与 1 / i^theta 成正比，用于模拟热点用户
+ */
+public class KeyGenerator {
+
+  private final int keySpace;
+
+  /**
+   * zipfian 累积分布，均匀分布时为 null
+   */
+  private final double[] cdf;
+
+  private KeyGenerator(int keySpace, double[] cdf) {
+    this.keySpace = keySpace;
+    this.cdf = cdf;
+  }
+
+  public static KeyGenerator uniform(int keySpace) {
+    return new KeyGenerator(keySpace, null);
+  }
+
+  public static KeyGenerator zipfian(int keySpace, double theta) {
+    double[] cdf = new double[keySpace];
+    double sum = 0;
+    for (int i = 0; i < keySpace; i++) {
+      sum += 1.0 / Math.pow(i + 1, theta);
+      cdf[i] = sum;
+    }
+    for (int i = 0; i < keySpace; i++) {
+      cdf[i] /= sum;
+    }
+    return new KeyGenerator(keySpace, cdf);
+  }
+
+  public static KeyGenerator of(String distribution, int keySpace, double theta) {
+    if ("zipfian".equalsIgnoreCase(distribution)) {
+      return zipfian(keySpace, theta);
+    }
+    return uniform(keySpace);
+  }
+
+  public String nextKey() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int rank;
+    if (null == cdf) {
+      rank = random.nextInt(keySpace);
+    } else {
+      int idx = Arrays.binarySearch(cdf, random.nextDouble());
+      rank = Math.min(idx >= 0 ? idx : -idx - 1, keySpace - 1);
+    }
+    return "user" + rank;
+  }
+}
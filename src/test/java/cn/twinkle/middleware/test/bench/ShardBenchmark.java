@@ -0,0 +1,243 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 端到端分库分表压测
+ * 用 H2 内存库（MySQL 模式）模拟 dbCount × tbCount 个分片，通过正常的 mini-db-router.jdbc.datasource.* 配置启动，
+ * 调用带 @DBRouter 注解的 mapper，完整经过 DBRouterJoinPoint 与 DynamicMybatisPlugin，
+ * 最后输出吞吐、延迟分位数以及各分片的数据分布
+ *
+ * 参数通过系统属性传入，例如：
+ * -Dbench.dbCount=2 -Dbench.tbCount=4 -Dbench.threads=16 -Dbench.ops=20000
+ * -Dbench.distribution=zipfian -Dbench.theta=0.99 -Dbench.readRatio=0.8
+ * -Dbench.strategy=全类名（需要有 DBRouterConfig 入参的构造函数，不传则使用默认哈希路由）
+ * 其他 mini-db-router.* 配置同样可以通过系统属性覆盖
+ */
+public class ShardBenchmark {
+
+  static final String PREFIX = "mini-db-router.jdbc.datasource.";
+
+  public static void main(String[] args) throws Exception {
+    new ShardBenchmark().run();
+  }
+
+  @Test
+  public void test_benchmark() throws Exception {
+    String ops = System.getProperty("bench.ops");
+    String threads = System.getProperty("bench.threads");
+    System.setProperty("bench.ops", "2000");
+    System.setProperty("bench.threads", "4");
+    try {
+      Assert.assertEquals("压测请求失败数", 0, new ShardBenchmark().run());
+    } finally {
+      restoreProperty("bench.ops", ops);
+      restoreProperty("bench.threads", threads);
+    }
+  }
+
+  private void restoreProperty(String key, String value) {
+    if (null == value) {
+      System.clearProperty(key);
+    } else {
+      System.setProperty(key, value);
+    }
+  }
+
+  /**
+   * 执行压测并输出报告
+   * @return 失败的请求数
+   */
+  public long run() throws Exception {
+    int dbCount = Integer.getInteger("bench.dbCount", 2);
+    int tbCount = Integer.getInteger("bench.tbCount", 4);
+    int threads = Integer.getInteger("bench.threads", 16);
+    int opsPerThread = Integer.getInteger("bench.ops", 20000);
+    int warmupOps = Integer.getInteger("bench.warmup", 1000);
+    int keySpace = Integer.getInteger("bench.keySpace", 100000);
+    double theta = Double.parseDouble(System.getProperty("bench.theta", "0.99"));
+    double readRatio = Double.parseDouble(System.getProperty("bench.readRatio", "0.8"));
+    String distribution = System.getProperty("bench.distribution", "uniform");
+    String strategyClass = System.getProperty("bench.strategy");
+
+    // 1. 准备分片库表，每个分库一个独立的 H2 内存库
+    Map<String, Object> properties = prepareShards("bench", dbCount, tbCount);
+
+    // 2. 启动容器
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(BenchApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(properties);
+    if (null != strategyClass) {
+      IDBRouterStrategy strategy = (IDBRouterStrategy) Class.forName(strategyClass)
+          .getConstructor(DBRouterConfig.class)
+          .newInstance(new DBRouterConfig(dbCount, tbCount, "userId"));
+      builder.initializers(ctx -> ctx.getBeanFactory().registerSingleton("benchRouterStrategy", strategy));
+    }
+
+    try (ConfigurableApplicationContext context = builder.run()) {
+      IBenchUserDao userDao = context.getBean(IBenchUserDao.class);
+      KeyGenerator keyGenerator = KeyGenerator.of(distribution, keySpace, theta);
+
+      // 3. 预热
+      for (int i = 0; i < warmupOps; i++) {
+        userDao.insertUser(new BenchUser(keyGenerator.nextKey(), "warmup"));
+      }
+
+      // 4. 压测
+      ExecutorService executorService = Executors.newFixedThreadPool(threads);
+      CountDownLatch start = new CountDownLatch(1);
+      AtomicLong errors = new AtomicLong();
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executorService.submit(() -> {
+          long[] latencies = new long[opsPerThread];
+          start.await();
+          for (int i = 0; i < opsPerThread; i++) {
+            String userId = keyGenerator.nextKey();
+            long begin = System.nanoTime();
+            try {
+              if (ThreadLocalRandom.current().nextDouble() < readRatio) {
+                userDao.queryUser(userId);
+              } else {
+                userDao.insertUser(new BenchUser(userId, "bench"));
+              }
+            } catch (Exception e) {
+              errors.incrementAndGet();
+            }
+            latencies[i] = System.nanoTime() - begin;
+          }
+          return latencies;
+        }));
+      }
+      long begin = System.nanoTime();
+      start.countDown();
+      long[] all = new long[threads * opsPerThread];
+      for (int t = 0; t < threads; t++) {
+        System.arraycopy(futures.get(t).get(), 0, all, t * opsPerThread, opsPerThread);
+      }
+      long elapsed = System.nanoTime() - begin;
+      executorService.shutdown();
+
+      // 5. 报告
+      Arrays.sort(all);
+      System.out.println("========== 分库分表压测 ==========");
+      System.out.printf("分库：%d 分表：%d 线程：%d 分布：%s 读比例：%.2f 策略：%s%n", dbCount, tbCount, threads,
+          distribution, readRatio, null == strategyClass ? "默认" : strategyClass);
+      System.out.printf("总请求：%d 失败：%d 耗时：%.2fs 吞吐：%.0f ops/s%n", all.length, errors.get(),
+          elapsed / 1e9, all.length / (elapsed / 1e9));
+      System.out.printf("延迟(us) p50：%d p90：%d p99：%d p999：%d max：%d%n", percentile(all, 0.50),
+          percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1000);
+      printBalance(properties, dbCount, tbCount);
+      return errors.get();
+    }
+  }
+
+  /**
+   * 准备 db00（默认库）~ dbCount 个 H2 内存库并建好分表，返回对应的 mini-db-router 配置
+   * @param name 库名前缀，不同测试使用不同前缀，互不影响
+   */
+  public static Map<String, Object> prepareShards(String name, int dbCount, int tbCount) throws SQLException {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(PREFIX + "dbCount", dbCount);
+    properties.put(PREFIX + "tbCount", tbCount);
+    properties.put(PREFIX + "routerKey", "userId");
+    properties.put(PREFIX + "default", "db00");
+    StringBuilder list = new StringBuilder();
+    for (int dbIdx = 0; dbIdx <= dbCount; dbIdx++) {
+      String dbName = String.format("db%02d", dbIdx);
+      String url = "jdbc:h2:mem:" + name + "_" + dbName + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+      properties.put(PREFIX + dbName + ".url", url);
+      properties.put(PREFIX + dbName + ".username", "sa");
+      properties.put(PREFIX + dbName + ".password", "");
+      createTables(url, tbCount);
+      if (dbIdx > 0) {
+        list.append(list.length() > 0 ? "," : "").append(dbName);
+      }
+    }
+    properties.put(PREFIX + "list", list.toString());
+    return properties;
+  }
+
+  /**
+   * 在分库中创建 bench_user_000 这种分表
+   */
+  private static void createTables(String url, int tbCount) throws SQLException {
+    try (Connection connection = DriverManager.getConnection(url, "sa", "");
+         Statement statement = connection.createStatement()) {
+      for (int tbIdx = 0; tbIdx < tbCount; tbIdx++) {
+        String table = String.format("bench_user_%03d", tbIdx);
+        statement.execute("create table if not exists " + table
+            + " (id bigint auto_increment primary key, user_id varchar(32), user_name varchar(64))");
+        statement.execute("create index if not exists idx_" + table + "_user_id on " + table + " (user_id)");
+      }
+    }
+  }
+
+  /**
+   * 统计每个分片写入的行数，以及相对均值的偏差
+   */
+  private void printBalance(Map<String, Object> properties, int dbCount, int tbCount) throws SQLException {
+    long[][] counts = new long[dbCount][tbCount];
+    long total = 0;
+    for (int dbIdx = 1; dbIdx <= dbCount; dbIdx++) {
+      String url = properties.get(PREFIX + String.format("db%02d", dbIdx) + ".url").toString();
+      try (Connection connection = DriverManager.getConnection(url, "sa", "");
+           Statement statement = connection.createStatement()) {
+        for (int tbIdx = 0; tbIdx < tbCount; tbIdx++) {
+          try (ResultSet resultSet = statement.executeQuery(String.format("select count(*) from bench_user_%03d", tbIdx))) {
+            resultSet.next();
+            counts[dbIdx - 1][tbIdx] = resultSet.getLong(1);
+            total += counts[dbIdx - 1][tbIdx];
+          }
+        }
+      }
+    }
+    double mean = (double) total / (dbCount * tbCount);
+    double variance = 0;
+    long max = 0;
+    for (long[] db : counts) {
+      for (long count : db) {
+        variance += (count - mean) * (count - mean);
+        max = Math.max(max, count);
+      }
+    }
+    System.out.println("分片写入分布：");
+    for (int dbIdx = 0; dbIdx < dbCount; dbIdx++) {
+      for (int tbIdx = 0; tbIdx < tbCount; tbIdx++) {
+        System.out.printf("  db%02d.bench_user_%03d：%d%n", dbIdx + 1, tbIdx, counts[dbIdx][tbIdx]);
+      }
+    }
+    System.out.printf("变异系数：%.4f 最大/均值：%.4f%n",
+        mean == 0 ? 0 : Math.sqrt(variance / (dbCount * tbCount)) / mean, mean == 0 ? 0 : max / mean);
+  }
+
+  private long percentile(long[] sorted, double p) {
+    int idx = (int) Math.ceil(p * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1000;
+  }
+
+}
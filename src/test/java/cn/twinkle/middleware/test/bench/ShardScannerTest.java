@@ -0,0 +1,169 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.dynamic.DynamicDataSource;
+import cn.twinkle.middleware.dbs.router.scan.ScanRequest;
+import cn.twinkle.middleware.dbs.router.scan.ShardScanner;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 全分片扫描测试：H2 分片上验证键集分页、并行扫描、分片失败与消费者异常
+ */
+public class ShardScannerTest {
+
+  private static final int DB_COUNT = 2;
+
+  private static final int TB_COUNT = 4;
+
+  /**
+   * 每张分表的行数
+   */
+  private static final int TABLE_ROWS = 6;
+
+  @Test
+  public void test_scan() throws Exception {
+    Map<String, Object> properties = prepare("scan");
+    ShardScanner scanner = scanner(properties);
+
+    // 行数正好是页大小的整数倍（最后多查一次空页），多个分片并行，缓冲很小时扫描线程被背压
+    assertScan(scanner, request(3, 3, 2));
+    // 最后一页不足一页，单线程扫描
+    assertScan(scanner, request(4, 1, 1024));
+    // 页大小大于表行数
+    assertScan(scanner, request(100, 8, 16));
+  }
+
+  @Test
+  public void test_scan_shard_failure() throws Exception {
+    Map<String, Object> properties = prepare("scan_failure");
+    try (Connection connection = DriverManager.getConnection(url(properties, "02"), "sa", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute("drop table bench_user_002");
+    }
+
+    try {
+      scanner(properties).scan(request(3, 3, 2), row -> {
+      });
+      Assert.fail("scan should fail on db02 bench_user_002");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("库id：02 表id：002"));
+      Assert.assertNotNull(e.getCause());
+    }
+    assertScanThreadsStopped();
+  }
+
+  @Test
+  public void test_scan_consumer_failure() throws Exception {
+    Map<String, Object> properties = prepare("scan_consumer");
+    IllegalStateException failure = new IllegalStateException("consumer failed");
+    try {
+      // 缓冲只有一行，消费者失败时扫描线程都阻塞在队列上，需要被中断才能退出
+      scanner(properties).scan(request(2, 4, 1), row -> {
+        throw failure;
+      });
+      Assert.fail("scan should stop when consumer fails");
+    } catch (IllegalStateException e) {
+      Assert.assertSame(failure, e);
+    }
+    assertScanThreadsStopped();
+  }
+
+  private void assertScan(ShardScanner scanner, ScanRequest request) {
+    Map<String, List<Long>> shardIds = new TreeMap<>();
+    long rows = scanner.scan(request, row -> shardIds
+        .computeIfAbsent(row.getDbKey() + "_" + row.getTbKey(), k -> new ArrayList<>())
+        .add(((Number) row.get("ID")).longValue()));
+
+    Assert.assertEquals(DB_COUNT * TB_COUNT * TABLE_ROWS, rows);
+    Assert.assertEquals(DB_COUNT * TB_COUNT, shardIds.size());
+    for (Map.Entry<String, List<Long>> entry : shardIds.entrySet()) {
+      // 每个分片的行不重不漏，并且按键集分页字段递增
+      List<Long> ids = entry.getValue();
+      Assert.assertEquals(entry.getKey(), TABLE_ROWS, ids.size());
+      for (int i = 1; i < ids.size(); i++) {
+        Assert.assertTrue(entry.getKey(), ids.get(i - 1) < ids.get(i));
+      }
+    }
+  }
+
+  /**
+   * 扫描被中止后，扫描线程都应该退出并归还连接
+   */
+  private void assertScanThreadsStopped() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (scanThreads() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(0, scanThreads());
+  }
+
+  private long scanThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.isAlive() && thread.getName().startsWith("db-router-scan-"))
+        .count();
+  }
+
+  private ScanRequest request(int pageSize, int parallelism, int bufferSize) {
+    ScanRequest request = new ScanRequest("bench_user", "id");
+    request.setPageSize(pageSize);
+    request.setParallelism(parallelism);
+    request.setBufferSize(bufferSize);
+    // H2 不支持 MySQL 流式读取的 Integer.MIN_VALUE
+    request.setFetchSize(100);
+    return request;
+  }
+
+  /**
+   * 准备 H2 分片，每张分表写入 TABLE_ROWS 行
+   */
+  private Map<String, Object> prepare(String name) throws Exception {
+    Map<String, Object> properties = ShardBenchmark.prepareShards(name, DB_COUNT, TB_COUNT);
+    for (int dbIdx = 1; dbIdx <= DB_COUNT; dbIdx++) {
+      try (Connection connection = DriverManager.getConnection(url(properties, String.format("%02d", dbIdx)), "sa", "")) {
+        for (int tbIdx = 0; tbIdx < TB_COUNT; tbIdx++) {
+          try (PreparedStatement statement = connection.prepareStatement(
+              String.format("insert into bench_user_%03d (user_id, user_name) values (?, ?)", tbIdx))) {
+            for (int i = 0; i < TABLE_ROWS; i++) {
+              statement.setString(1, "scan" + dbIdx + "_" + tbIdx + "_" + i);
+              statement.setString(2, "name" + i);
+              statement.executeUpdate();
+            }
+          }
+        }
+      }
+    }
+    return properties;
+  }
+
+  private ShardScanner scanner(Map<String, Object> properties) {
+    Map<Object, Object> targetDataSources = new HashMap<>();
+    for (int dbIdx = 1; dbIdx <= DB_COUNT; dbIdx++) {
+      String dbKey = String.format("%02d", dbIdx);
+      targetDataSources.put("db" + dbKey, new DriverManagerDataSource(url(properties, dbKey), "sa", ""));
+    }
+    DynamicDataSource dataSource = new DynamicDataSource();
+    dataSource.setTargetDataSources(targetDataSources);
+    dataSource.setDefaultTargetDataSource(new DriverManagerDataSource(url(properties, "00"), "sa", ""));
+    dataSource.afterPropertiesSet();
+    return new ShardScanner(dataSource, new DBRouterStrategyHashCode(new DBRouterConfig(DB_COUNT, TB_COUNT, "userId")));
+  }
+
+  private String url(Map<String, Object> properties, String dbKey) {
+    return properties.get(ShardBenchmark.PREFIX + "db" + dbKey + ".url").toString();
+  }
+
+}
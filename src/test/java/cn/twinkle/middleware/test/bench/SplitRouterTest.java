@@ -0,0 +1,178 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.DBBroadcastException;
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.diagnostics.ShardDiagnostics;
+import cn.twinkle.middleware.dbs.router.strategy.IDBRouterStrategy;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 集合路由端到端测试：H2 分片上验证按分片分组、入参替换以及结果合并
+ */
+public class SplitRouterTest {
+
+  private static final int DB_COUNT = 2;
+
+  private static final int TB_COUNT = 4;
+
+  @Test
+  public void test_split_router() throws Exception {
+    Map<String, Object> properties = ShardBenchmark.prepareShards("split", DB_COUNT, TB_COUNT);
+    properties.put(ShardBenchmark.PREFIX + "diagnostics.enabled", true);
+    IDBRouterStrategy strategy = new DBRouterStrategyHashCode(new DBRouterConfig(DB_COUNT, TB_COUNT, "userId"));
+
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(properties)
+        .run()) {
+      IBenchUserDao userDao = context.getBean(IBenchUserDao.class);
+
+      List<BenchUser> users = new ArrayList<>();
+      List<String> userIds = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        users.add(new BenchUser("split" + i, "name" + i));
+        userIds.add("split" + i);
+      }
+
+      // 对象集合按每个对象的 userId 分组写入，影响行数求和
+      Assert.assertEquals(20, userDao.insertUsers(users));
+      for (String userId : userIds) {
+        strategy.doRouter(userId);
+        Assert.assertEquals(userId, 1, count(properties, strategy.getDBKey(), strategy.getTBKey(), userId));
+        strategy.clear();
+      }
+
+      // 路由键集合拆分查询，结果按分片拼接
+      Assert.assertEquals(20, userDao.queryUsers(userIds).size());
+
+      // @MapKey 返回 Map 时合并各分片结果
+      Map<String, BenchUser> userMap = userDao.queryUserMap(userIds);
+      Assert.assertEquals(20, userMap.size());
+      Assert.assertEquals("name7", userMap.get("split7").getUserName());
+
+      // 集合在入参对象属性中：复制对象后替换属性，调用方入参不变
+      BenchUserQuery query = new BenchUserQuery(userIds);
+      Assert.assertEquals(20, userDao.queryUsersByQuery(query).size());
+      Assert.assertSame(userIds, query.getUserIds());
+      Assert.assertEquals(20, query.getUserIds().size());
+
+      // 事务中：只落在一个分片时在当前线程执行，跨多个分片时拒绝
+      TransactionSynchronizationManager.setActualTransactionActive(true);
+      try {
+        Assert.assertEquals(1, userDao.queryUsers(Collections.singletonList("split0")).size());
+        try {
+          userDao.queryUsers(userIds);
+          Assert.fail("split router should be rejected in transaction");
+        } catch (RuntimeException e) {
+          Assert.assertTrue(e.getMessage().contains("can not run in transaction"));
+        }
+      } finally {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+      }
+
+      // 写入部分分片失败：其余分片不取消，异常中给出已提交、失败的分片
+      List<BenchUser> badUsers = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        badUsers.add(new BenchUser("bad" + i, "name" + i));
+      }
+      String badUserName = String.format("%065d", 0);
+      badUsers.get(0).setUserName(badUserName);
+      strategy.doRouter("bad0");
+      String badDbKey = strategy.getDBKey();
+      String badTbKey = strategy.getTBKey();
+      strategy.clear();
+      try {
+        userDao.insertUsers(badUsers);
+        Assert.fail("insert with too long user name should fail");
+      } catch (DBBroadcastException e) {
+        Assert.assertEquals(1, e.getFailures().size());
+        Assert.assertEquals(badDbKey, e.getFailures().keySet().iterator().next().getDbKey());
+        Assert.assertEquals(badTbKey, e.getFailures().keySet().iterator().next().getTbKey());
+        Assert.assertFalse(e.getSucceeded().isEmpty());
+        for (BenchUser user : badUsers) {
+          strategy.doRouter(user.getUserId());
+          boolean failed = badDbKey.equals(strategy.getDBKey()) && badTbKey.equals(strategy.getTBKey());
+          Assert.assertEquals(user.getUserId(), failed ? 0 : 1,
+              count(properties, strategy.getDBKey(), strategy.getTBKey(), user.getUserId()));
+          strategy.clear();
+        }
+      }
+
+      assertDiagnostics(context.getBean(ShardDiagnostics.class), strategy);
+    }
+  }
+
+  /**
+   * 路由解释与各分库统计
+   */
+  @SuppressWarnings("unchecked")
+  private void assertDiagnostics(ShardDiagnostics diagnostics, IDBRouterStrategy strategy) {
+    strategy.doRouter("split7");
+    String dbKey = strategy.getDBKey();
+    String tbKey = strategy.getTBKey();
+    strategy.clear();
+
+    // explain：按 mapper 方法上的注解路由，并给出改写表名后的物理sql
+    Map<String, Object> explain = diagnostics.explain(IBenchUserDao.class.getName() + ".queryUser", "split7", null);
+    Assert.assertEquals(DBRouterStrategyHashCode.class.getName(), explain.get("strategy"));
+    Assert.assertEquals(true, explain.get("splitTable"));
+    Assert.assertTrue(explain.get("sql").toString().contains(" from bench_user where "));
+    List<Map<String, Object>> routes = (List<Map<String, Object>>) explain.get("routes");
+    Assert.assertEquals(1, routes.size());
+    Assert.assertEquals(dbKey, routes.get(0).get("dbKey"));
+    Assert.assertEquals(tbKey, routes.get(0).get("tbKey"));
+    Assert.assertEquals("db" + dbKey, routes.get(0).get("dataSource"));
+    Assert.assertTrue(routes.get(0).get("physicalSql").toString().contains(" from bench_user_" + tbKey + " where "));
+    // explain 不影响当前线程的路由
+    Assert.assertNull(strategy.getDBKey());
+
+    try {
+      diagnostics.explain(IBenchUserDao.class.getName() + ".notExists", "split7", null);
+      Assert.fail("explain should reject unknown statement");
+    } catch (RuntimeException e) {
+      Assert.assertTrue(e.getMessage().contains("mapped statement not found"));
+    }
+
+    // stats：上面的读写都经过了各分库，执行结束后没有正在执行的语句
+    Map<String, Object> stats = diagnostics.stats();
+    Map<String, Long> calls = (Map<String, Long>) stats.get("calls");
+    Map<String, Long> inFlight = (Map<String, Long>) stats.get("inFlight");
+    for (int dbIdx = 1; dbIdx <= DB_COUNT; dbIdx++) {
+      String shard = String.format("db%02d", dbIdx);
+      Assert.assertTrue(shard, calls.get(shard) > 0);
+      Assert.assertEquals(shard, Long.valueOf(0), inFlight.get(shard));
+    }
+    Assert.assertEquals("disabled", stats.get("statementCache"));
+    Assert.assertNotNull(stats.get("slowest"));
+  }
+
+  private long count(Map<String, Object> properties, String dbKey, String tbKey, String userId) throws Exception {
+    String url = properties.get(ShardBenchmark.PREFIX + "db" + dbKey + ".url").toString();
+    try (Connection connection = DriverManager.getConnection(url, "sa", "");
+         PreparedStatement statement = connection.prepareStatement(
+             "select count(*) from bench_user_" + tbKey + " where user_id = ?")) {
+      statement.setString(1, userId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+}
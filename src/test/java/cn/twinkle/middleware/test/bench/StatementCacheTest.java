@@ -0,0 +1,96 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.dynamic.ShardStatementCacheMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 预编译缓存端到端测试：H2 分片上验证热点语句预热，以及连接池替换连接后新连接同样已经预热
+ */
+public class StatementCacheTest {
+
+  private static final int DB_COUNT = 2;
+
+  private static final int TB_COUNT = 4;
+
+  private static final int POOL_SIZE = 2;
+
+  @Test
+  public void test_statement_warmer() throws Exception {
+    Map<String, Object> properties = ShardBenchmark.prepareShards("warm", DB_COUNT, TB_COUNT);
+    properties.put(ShardBenchmark.PREFIX + "stmtCache.enabled", true);
+    properties.put(ShardBenchmark.PREFIX + "stmtCache.hotStatements", IBenchUserDao.class.getName() + ".queryUser");
+    properties.put(ShardBenchmark.PREFIX + "pool.maxSize", POOL_SIZE);
+
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(properties)
+        .run()) {
+      IBenchUserDao userDao = context.getBean(IBenchUserDao.class);
+      ShardStatementCacheMonitor monitor = context.getBean(ShardStatementCacheMonitor.class);
+      // 启动时每个分库的连接都已经预热
+      Assert.assertTrue(monitor.getConnectionCount() >= DB_COUNT * POOL_SIZE);
+
+      for (int i = 0; i < 20; i++) {
+        userDao.insertUser(new BenchUser("warm" + i, "name" + i));
+      }
+
+      // 热点语句在所有分库、分表、连接上都命中
+      long[] before = total(monitor);
+      queryAll(userDao);
+      long[] after = total(monitor);
+      Assert.assertEquals(20, after[0] - before[0]);
+      Assert.assertEquals(before[1], after[1]);
+
+      // 连接池替换连接（如 maxLifetime 到期）后，新连接在放入连接池前已经预热
+      AbstractRoutingDataSource dataSource = (AbstractRoutingDataSource) context.getBean(DataSource.class);
+      for (DataSource shard : dataSource.getResolvedDataSources().values()) {
+        HikariPoolMXBean pool = ((HikariDataSource) shard).getHikariPoolMXBean();
+        pool.softEvictConnections();
+      }
+      for (DataSource shard : dataSource.getResolvedDataSources().values()) {
+        HikariPoolMXBean pool = ((HikariDataSource) shard).getHikariPoolMXBean();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.getIdleConnections() < POOL_SIZE && System.currentTimeMillis() < deadline) {
+          Thread.sleep(50);
+        }
+        Assert.assertEquals(POOL_SIZE, pool.getIdleConnections());
+      }
+
+      before = total(monitor);
+      queryAll(userDao);
+      after = total(monitor);
+      Assert.assertEquals(20, after[0] - before[0]);
+      Assert.assertEquals(before[1], after[1]);
+    }
+  }
+
+  private void queryAll(IBenchUserDao userDao) {
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("name" + i, userDao.queryUser("warm" + i).getUserName());
+    }
+  }
+
+  /**
+   * 所有分库的 [命中次数, 未命中次数]
+   */
+  private long[] total(ShardStatementCacheMonitor monitor) {
+    long[] total = new long[2];
+    for (long[] shard : monitor.snapshot().values()) {
+      total[0] += shard[0];
+      total[1] += shard[1];
+    }
+    return total;
+  }
+
+}
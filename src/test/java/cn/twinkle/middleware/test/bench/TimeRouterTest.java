@@ -0,0 +1,118 @@
+package cn.twinkle.middleware.test.bench;
+
+import cn.twinkle.middleware.dbs.router.DBRouterConfig;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyHashCode;
+import cn.twinkle.middleware.dbs.router.strategy.impl.DBRouterStrategyTimeRange;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * @Author: zhencym
+ * @DATE: 2026/10/19
+ * 按月分表端到端测试：H2 分片上经过 DBRouterJoinPoint 与 DynamicMybatisPlugin，验证按月写入与 @DBRouterRange 范围查询
+ */
+public class TimeRouterTest {
+
+  private static final int DB_COUNT = 2;
+
+  private static final int TB_COUNT = 4;
+
+  private static final String[] MONTHS = {"202608", "202609", "202610"};
+
+  @Test
+  public void test_time_router() throws Exception {
+    Map<String, Object> properties = ShardBenchmark.prepareShards("time", DB_COUNT, TB_COUNT);
+    createMonthTables(properties);
+    DBRouterConfig config = new DBRouterConfig(DB_COUNT, TB_COUNT, "userId");
+    DBRouterStrategyTimeRange timeStrategy = new DBRouterStrategyTimeRange(config);
+
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(properties)
+        .run()) {
+      IBenchOrderDao orderDao = context.getBean(IBenchOrderDao.class);
+
+      // 只按时间路由：库按月份轮转，表为当月分表
+      orderDao.insertOrder(new BenchOrder("o1", "u1", "2026-08-05"));
+      orderDao.insertOrder(new BenchOrder("o2", "u2", "2026-09-10"));
+      orderDao.insertOrder(new BenchOrder("o3", "u1", "2026-10-20"));
+      String augustDb = timeStrategy.route(YearMonth.of(2026, 8)).getDbKey();
+      Assert.assertEquals(1, count(properties, augustDb, "bench_order_202608", "o1"));
+
+      // 范围查询只访问区间内的月表，按月份顺序拼接结果
+      Assert.assertEquals(Arrays.asList("o1", "o2"), orderIds(orderDao.queryOrders("2026-08-01", "2026-09-30")));
+      Assert.assertEquals(Arrays.asList("o3"), orderIds(orderDao.queryOrders("2026-10-01", "2026-10-31")));
+
+      // 复合路由：按 userId 散列分库、按月分表，范围查询只访问该用户所在的库
+      orderDao.insertUserOrder(new BenchOrder("uo1", "u1", "2026-08-05"));
+      orderDao.insertUserOrder(new BenchOrder("uo2", "u1", "2026-09-10"));
+      orderDao.insertUserOrder(new BenchOrder("uo3", "u1", "2026-10-20"));
+      orderDao.insertUserOrder(new BenchOrder("uo4", "u2", "2026-09-11"));
+      String userDb = String.format("%02d", DBRouterStrategyHashCode.dbIdx("u1", DB_COUNT, TB_COUNT));
+      for (int i = 0; i < MONTHS.length; i++) {
+        Assert.assertEquals(1, count(properties, userDb, "bench_user_order_" + MONTHS[i], "uo" + (i + 1)));
+      }
+      Assert.assertEquals(Arrays.asList("uo1", "uo2", "uo3"),
+          orderIds(orderDao.queryUserOrders("u1", "2026-08-01", "2026-10-31")));
+      Assert.assertEquals(Arrays.asList("uo4"), orderIds(orderDao.queryUserOrders("u2", "2026-09-01", "2026-09-30")));
+      // 复合路由的两个字段都从 @Param 参数中取值
+      Assert.assertEquals(1, orderDao.countUserOrders("u1", "2026-09-10"));
+      Assert.assertEquals(0, orderDao.countUserOrders("u2", "2026-09-10"));
+    }
+  }
+
+  /**
+   * 在所有分库中建好测试月份的分表；复合路由时每个月的分表在所有库都可能写入
+   */
+  private void createMonthTables(Map<String, Object> properties) throws Exception {
+    for (int dbIdx = 1; dbIdx <= DB_COUNT; dbIdx++) {
+      try (Connection connection = DriverManager.getConnection(url(properties, String.format("%02d", dbIdx)), "sa", "");
+           Statement statement = connection.createStatement()) {
+        for (String month : MONTHS) {
+          for (String table : new String[]{"bench_order", "bench_user_order"}) {
+            statement.execute("create table if not exists " + table + "_" + month
+                + " (id bigint auto_increment primary key, order_id varchar(32), user_id varchar(32), create_time varchar(19))");
+          }
+        }
+      }
+    }
+  }
+
+  private List<String> orderIds(List<BenchOrder> orders) {
+    List<String> ids = new ArrayList<>();
+    for (BenchOrder order : orders) {
+      ids.add(order.getOrderId());
+    }
+    return ids;
+  }
+
+  private long count(Map<String, Object> properties, String dbKey, String table, String orderId) throws Exception {
+    try (Connection connection = DriverManager.getConnection(url(properties, dbKey), "sa", "");
+         PreparedStatement statement = connection.prepareStatement(
+             "select count(*) from " + table + " where order_id = ?")) {
+      statement.setString(1, orderId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  private String url(Map<String, Object> properties, String dbKey) {
+    return properties.get(ShardBenchmark.PREFIX + "db" + dbKey + ".url").toString();
+  }
+
+}